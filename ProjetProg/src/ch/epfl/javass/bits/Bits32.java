@@ -42,6 +42,38 @@ public final class Bits32 {
         return (mask(start, size) & bits) >>> start;
     }
 
+    /**
+     * same as mask, without checking its arguments: for the packed classes,
+     * whose positions and sizes are constants the JIT folds into the result
+     *
+     * @param start
+     *            the bit index where the 1 bit part begins
+     * @param size
+     *            the size of the 1 bit part of the integer, start + size being
+     *            at most 32
+     * @return the integer whose bits are 1 between start and start+size and 0
+     *         everywhere else
+     */
+    public static int maskUnchecked(int start, int size) {
+        return size == Integer.SIZE ? -1 : ((1 << size) - 1) << start;
+    }
+
+    /**
+     * same as extract, without checking its arguments (see maskUnchecked)
+     *
+     * @param bits
+     *            the integer that data will be extracted from
+     * @param start
+     *            the index at which the extraction begins
+     * @param size
+     *            the size of the extraction, start + size being at most 32
+     * @return the integer that is created through extraction from bits, with
+     *         respect to start and size
+     */
+    public static int extractUnchecked(int bits, int start, int size) {
+        return (bits >>> start) & maskUnchecked(0, size);
+    }
+
     /**
      * @param v1
      *            the first integer that extraction will be performed upon
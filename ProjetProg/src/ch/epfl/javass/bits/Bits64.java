@@ -37,6 +37,38 @@ public final class Bits64 {
         return (mask(start, size) & bits) >>> start;
     }
 
+    /**
+     * same as mask, without checking its arguments: for the packed classes,
+     * whose positions and sizes are constants the JIT folds into the result
+     *
+     * @param start
+     *            the bit index where the 1 bit part begins
+     * @param size
+     *            the size of the 1 bit part of the Long, start + size being at
+     *            most 64
+     * @return the Long whose bits are 1 between start and start+size and 0
+     *         everywhere else
+     */
+    public static long maskUnchecked(int start, int size) {
+        return size == Long.SIZE ? -1 : ((1L << size) - 1) << start;
+    }
+
+    /**
+     * same as extract, without checking its arguments (see maskUnchecked)
+     *
+     * @param bits
+     *            the Long that data will be extracted from
+     * @param start
+     *            the index at which the extraction begins
+     * @param size
+     *            the size of the extraction, start + size being at most 64
+     * @return the Long that is created through extraction from bits, with
+     *         respect to start and size
+     */
+    public static long extractUnchecked(long bits, int start, int size) {
+        return (bits >>> start) & maskUnchecked(0, size);
+    }
+
     /**
      * @param v1
      *            the first Long that extraction will be performed upon
@@ -0,0 +1,164 @@
+package ch.epfl.javass.bits;
+
+import java.util.SplittableRandom;
+
+/**
+ * times mask and extract of Bits32 and Bits64 against their unchecked versions, and prints the
+ * nanoseconds per call of each one for every round (the first rounds warm the JIT up):
+ * - constant: the four 6-bit fields at constant positions of random ints or longs, the way the
+ *   packed classes read their cards, which the JIT can fold into a shift and an and;
+ * - variable: random valid positions and sizes read from arrays, so nothing is folded.
+ *
+ * Run with the number of rounds as its argument, 6 by default.
+ */
+class BitsBenchmark {
+
+    private static final int VALUES = 1 << 12;
+    private static final int REPETITIONS = 1000;
+    private static final int DEFAULT_ROUNDS = 6;
+    private static final int FIELD_SIZE = 6;
+    private static final int SEED = 2019;
+
+    private static final int[] ints = new int[VALUES];
+    private static final long[] longs = new long[VALUES];
+    private static final int[] starts32 = new int[VALUES];
+    private static final int[] sizes32 = new int[VALUES];
+    private static final int[] starts64 = new int[VALUES];
+    private static final int[] sizes64 = new int[VALUES];
+
+    private static long checksum; //printed, so that no loop can be removed
+
+    public static void main(String[] arguments) {
+        int rounds = arguments.length == 0 ? DEFAULT_ROUNDS : Integer.parseInt(arguments[0]);
+
+        SplittableRandom rng = new SplittableRandom(SEED);
+        for(int i = 0; i < VALUES; ++i) {
+            ints[i] = rng.nextInt();
+            longs[i] = rng.nextLong();
+            sizes32[i] = rng.nextInt(Integer.SIZE + 1);
+            starts32[i] = rng.nextInt(Integer.SIZE - sizes32[i] + 1);
+            sizes64[i] = rng.nextInt(Long.SIZE + 1);
+            starts64[i] = rng.nextInt(Long.SIZE - sizes64[i] + 1);
+        }
+
+        System.out.println("nanoseconds per call, checked/unchecked");
+        System.out.printf("%5s  %-18s  %-18s  %-18s  %-18s  %-18s  %-18s%n", "round",
+                "extract32 constant", "extract32 variable", "mask32 variable",
+                "extract64 constant", "extract64 variable", "mask64 variable");
+        for(int round = 1; round <= rounds; ++round) {
+            System.out.printf("%5d  %s  %s  %s  %s  %s  %s%n", round,
+                    time(BitsBenchmark::extract32Constant, BitsBenchmark::extract32ConstantUnchecked, 4),
+                    time(BitsBenchmark::extract32Variable, BitsBenchmark::extract32VariableUnchecked, 1),
+                    time(BitsBenchmark::mask32Variable, BitsBenchmark::mask32VariableUnchecked, 1),
+                    time(BitsBenchmark::extract64Constant, BitsBenchmark::extract64ConstantUnchecked, 4),
+                    time(BitsBenchmark::extract64Variable, BitsBenchmark::extract64VariableUnchecked, 1),
+                    time(BitsBenchmark::mask64Variable, BitsBenchmark::mask64VariableUnchecked, 1));
+        }
+        System.out.println("checksum " + checksum);
+    }
+
+    /**
+     * @param checked the loop calling the checked method
+     * @param unchecked the same loop calling the unchecked one
+     * @param callsPerValue the number of calls of the loops per value
+     * @return the nanoseconds per call of both loops, formatted
+     */
+    private static String time(Runnable checked, Runnable unchecked, int callsPerValue) {
+        return String.format("%8.2f/%-9.2f", nanosPerCall(checked, callsPerValue), nanosPerCall(unchecked, callsPerValue));
+    }
+
+    private static double nanosPerCall(Runnable loop, int callsPerValue) {
+        long start = System.nanoTime();
+        for(int r = 0; r < REPETITIONS; ++r)
+            loop.run();
+        return (double) (System.nanoTime() - start) / REPETITIONS / VALUES / callsPerValue;
+    }
+
+    private static void extract32Constant() {
+        int sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits32.extract(ints[i], 0, FIELD_SIZE) + Bits32.extract(ints[i], 6, FIELD_SIZE)
+                    + Bits32.extract(ints[i], 12, FIELD_SIZE) + Bits32.extract(ints[i], 18, FIELD_SIZE);
+        checksum += sum;
+    }
+
+    private static void extract32ConstantUnchecked() {
+        int sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits32.extractUnchecked(ints[i], 0, FIELD_SIZE) + Bits32.extractUnchecked(ints[i], 6, FIELD_SIZE)
+                    + Bits32.extractUnchecked(ints[i], 12, FIELD_SIZE) + Bits32.extractUnchecked(ints[i], 18, FIELD_SIZE);
+        checksum += sum;
+    }
+
+    private static void extract32Variable() {
+        int sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits32.extract(ints[i], starts32[i], sizes32[i]);
+        checksum += sum;
+    }
+
+    private static void extract32VariableUnchecked() {
+        int sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits32.extractUnchecked(ints[i], starts32[i], sizes32[i]);
+        checksum += sum;
+    }
+
+    private static void mask32Variable() {
+        int sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits32.mask(starts32[i], sizes32[i]);
+        checksum += sum;
+    }
+
+    private static void mask32VariableUnchecked() {
+        int sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits32.maskUnchecked(starts32[i], sizes32[i]);
+        checksum += sum;
+    }
+
+    private static void extract64Constant() {
+        long sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits64.extract(longs[i], 0, FIELD_SIZE) + Bits64.extract(longs[i], 6, FIELD_SIZE)
+                    + Bits64.extract(longs[i], 12, FIELD_SIZE) + Bits64.extract(longs[i], 18, FIELD_SIZE);
+        checksum += sum;
+    }
+
+    private static void extract64ConstantUnchecked() {
+        long sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits64.extractUnchecked(longs[i], 0, FIELD_SIZE) + Bits64.extractUnchecked(longs[i], 6, FIELD_SIZE)
+                    + Bits64.extractUnchecked(longs[i], 12, FIELD_SIZE) + Bits64.extractUnchecked(longs[i], 18, FIELD_SIZE);
+        checksum += sum;
+    }
+
+    private static void extract64Variable() {
+        long sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits64.extract(longs[i], starts64[i], sizes64[i]);
+        checksum += sum;
+    }
+
+    private static void extract64VariableUnchecked() {
+        long sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits64.extractUnchecked(longs[i], starts64[i], sizes64[i]);
+        checksum += sum;
+    }
+
+    private static void mask64Variable() {
+        long sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits64.mask(starts64[i], sizes64[i]);
+        checksum += sum;
+    }
+
+    private static void mask64VariableUnchecked() {
+        long sum = 0;
+        for(int i = 0; i < VALUES; ++i)
+            sum += Bits64.maskUnchecked(starts64[i], sizes64[i]);
+        checksum += sum;
+    }
+}
@@ -14,6 +14,14 @@ public final class Card {
 
     private final int PkdValue;
 
+    // the 36 cards, created once and indexed by their packed version
+    private static final Card[] CARDS = new Card[PackedCard.INVALID + 1];
+    static {
+        for (Color c : Color.values())
+            for (Rank r : Rank.values())
+                CARDS[PackedCard.pack(c, r)] = new Card(c, r);
+    }
+
     /**
      * @param c
      *            the color of the card that will be generated
@@ -29,20 +37,20 @@ public final class Card {
      *            the color of the card that will be generated
      * @param r
      *            the rank of the card that will be generated
-     * @return a constructed card
+     * @return the card of that color and rank, always the same instance
      */
     public static Card of(Color c, Rank r) {
-        return new Card(c, r);
+        return CARDS[PackedCard.pack(c, r)];
     }
 
     /**
      * @param packed
      *            the packed card that will be used as a model
-     * @return the card it corresponds to
+     * @return the card it corresponds to, always the same instance
      */
     public static Card ofPacked(int packed) {
         checkArgument(PackedCard.isValid(packed));
-        return new Card(PackedCard.color(packed), PackedCard.rank(packed));
+        return CARDS[packed];
     }
 
     /**
@@ -0,0 +1,110 @@
+package ch.epfl.javass.jass;
+
+import java.util.Arrays;
+
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.Card.Rank;
+
+/**
+ * the cards every player can still hold, as MctsPlayer learns them from the cards played
+ * (see Player.updateTrick): one packed card set per player, from which the cards played are
+ * removed, and the cards of the colors he showed he does not hold (see shownVoid).
+ * The searches then only give a player the cards of the pool that he can hold, instead of any
+ * card nobody knows the place of.
+ */
+final class CardLocationTracker {
+
+    private final long[] canHold = new long[PlayerId.COUNT]; //by PlayerId.ordinal
+
+    CardLocationTracker() {
+        reset();
+    }
+
+    /**
+     * forgets everything, at the beginning of a turn
+     */
+    void reset() {
+        Arrays.fill(canHold, PackedCardSet.ALL_CARDS);
+    }
+
+    /**
+     * @param pkTrick a packed trick whose last card was just played, following the rules
+     */
+    void cardPlayed(int pkTrick) {
+        int position = PackedTrick.size(pkTrick) - 1;
+        int pkCard = PackedTrick.card(pkTrick, position);
+        for(int p = 0; p < PlayerId.COUNT; ++p)
+            canHold[p] = PackedCardSet.remove(canHold[p], pkCard);
+
+        Color voidColor = shownVoid(pkTrick);
+        if(voidColor != null) {
+            int player = PackedTrick.player(pkTrick, position).ordinal();
+            canHold[player] = PackedCardSet.difference(canHold[player],
+                    packedMissingCards(voidColor, PackedTrick.trump(pkTrick)));
+        }
+    }
+
+    /**
+     * @param pkTrick a packed trick whose last card was just played, following the rules
+     * @return the base color of the trick if the player of that card showed he holds none of its
+     *         cards by playing it, null otherwise: he may always trump, but only discard if he does
+     *         not have the base color (see packedMissingCards for the jack of trump)
+     */
+    private static Color shownVoid(int pkTrick) {
+        int position = PackedTrick.size(pkTrick) - 1;
+        if(position == 0)
+            return null;
+        Color base = PackedTrick.baseColor(pkTrick);
+        Color color = PackedCard.color(PackedTrick.card(pkTrick, position));
+        return color != base && color != PackedTrick.trump(pkTrick) ? base : null;
+    }
+
+    /**
+     * @param voidColor a color a player showed he holds none of (see shownVoid)
+     * @param trump the trump color of the turn
+     * @return the packed set of the cards he cannot hold because of it: every card of that color,
+     *         except the jack of trump, which never has to be played
+     */
+    private static long packedMissingCards(Color voidColor, Color trump) {
+        long cards = PackedCardSet.subsetOfColor(PackedCardSet.ALL_CARDS, voidColor);
+        return voidColor == trump ? PackedCardSet.remove(cards, PackedCard.pack(trump, Rank.JACK)) : cards;
+    }
+
+    /**
+     * @return the packed sets of the cards every player can hold, indexed by PlayerId.ordinal,
+     *         which the tracker keeps modifying
+     */
+    long[] packedCanHold() {
+        return canHold;
+    }
+
+    /**
+     * @param pkPool the packed set of the cards nobody knows the place of
+     * @param canHold the packed sets of the cards every player can hold (see packedCanHold),
+     *                null if nothing is known about them
+     * @param player a player other than the one searching
+     * @return the cards of the pool that player can hold, or the whole pool if he can hold none of
+     *         them: the pool is shared by three players, so their constraints cannot always be met
+     */
+    static long possibleCards(long pkPool, long[] canHold, PlayerId player) {
+        if(canHold == null)
+            return pkPool;
+        long possible = PackedCardSet.intersection(pkPool, canHold[player.ordinal()]);
+        return possible == PackedCardSet.EMPTY ? pkPool : possible;
+    }
+
+    /**
+     * @param canHold some packed sets of cards every player can hold, null if nothing is known
+     * @param otherCanHold other ones, null if nothing is known
+     * @param pkUnplayedCards the packed set of the cards not played yet
+     * @return true if both say the same about the unplayed cards
+     */
+    static boolean sameOnUnplayed(long[] canHold, long[] otherCanHold, long pkUnplayedCards) {
+        if(canHold == null || otherCanHold == null)
+            return canHold == otherCanHold;
+        for(int p = 0; p < PlayerId.COUNT; ++p)
+            if(PackedCardSet.intersection(canHold[p] ^ otherCanHold[p], pkUnplayedCards) != PackedCardSet.EMPTY)
+                return false;
+        return true;
+    }
+}
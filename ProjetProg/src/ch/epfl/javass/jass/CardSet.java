@@ -1,6 +1,7 @@
 package ch.epfl.javass.jass;
 
 import java.util.List;
+import java.util.function.IntConsumer;
 
 import static ch.epfl.javass.Preconditions.checkArgument;
 
@@ -79,6 +80,17 @@ public final class CardSet {
         return Card.ofPacked(PackedCardSet.get(pkCardSet, index));
     }
 
+    /**
+     * calls action with the packed version of every card of the set, in the
+     * order of get, without creating any Card
+     *
+     * @param action
+     *            the action to perform on each packed card
+     */
+    public void forEach(IntConsumer action) {
+        PackedCardSet.forEach(pkCardSet, action);
+    }
+
     /**
      * @param card
      *            a card to be added to the current instance of CardSet
@@ -0,0 +1,112 @@
+package ch.epfl.javass.jass;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * checks that a player stopping his searches early (see MctsSettings.withEarlyStop) plays the same
+ * cards as the same player running all of his iterations, with a transposition table: in random
+ * turns, both players first take the same decision a few cards before the one compared, so that
+ * the table already holds the positions of the compared root's sons, which then get priors.
+ * The cases whose first decision stopped early are skipped, the tables of both players differing.
+ *
+ * Run with the number of turns as its argument, 1000 by default; throws an AssertionError on the
+ * first card that differs.
+ */
+class EarlyStopTest {
+
+    private static final int DEFAULT_TURNS = 1000;
+    private static final int ITERATIONS = 3000;
+    private static final int TABLE_SIZE = 16;
+    private static final int SEED = 2019;
+    private static final int START_CARDS = 8, START_RANGE = 16; //cards played before the first decision
+
+    public static void main(String[] arguments) {
+        int turns = arguments.length == 0 ? DEFAULT_TURNS : Integer.parseInt(arguments[0]);
+        SplittableRandom rng = new SplittableRandom(SEED);
+        int compared = 0, stopped = 0;
+        long saved = 0;
+
+        for(int t = 0; t < turns; ++t) {
+            long[] hands = deal(rng.nextLong());
+            TurnState state = TurnState.initial(Card.Color.ALL.get(rng.nextInt(Card.Color.COUNT)),
+                    Score.INITIAL, PlayerId.ALL.get(rng.nextInt(PlayerId.COUNT)));
+            state = playRandomly(state, hands, rng, START_CARDS + rng.nextInt(START_RANGE));
+            PlayerId me = state.nextPlayer();
+
+            MctsSettings settings = MctsSettings.DEFAULT.withTranspositionTable(TABLE_SIZE);
+            if(t % 3 == 0)
+                settings = settings.withRave(30);
+            MctsPlayer early = new MctsPlayer(me, t, ITERATIONS, settings.withEarlyStop(1));
+            MctsPlayer full = new MctsPlayer(me, t, ITERATIONS, settings);
+
+            //the first decision fills the tables, it is played so that the turn goes on
+            Card first = play(early, full, state, hands[me.ordinal()]);
+            if(first == null || early.savedIterations() != 0)
+                continue;
+            hands[me.ordinal()] = PackedCardSet.remove(hands[me.ordinal()], first.packed());
+            state = state.withNewCardPlayedAndTrickCollected(first);
+            while(!state.isTerminal() && state.nextPlayer() != me)
+                state = playRandomly(state, hands, rng, 1);
+            if(state.isTerminal())
+                continue;
+
+            if(play(early, full, state, hands[me.ordinal()]) == null)
+                continue;
+            ++compared;
+            if(early.savedIterations() != 0) {
+                ++stopped;
+                saved += early.savedIterations();
+            }
+        }
+        System.out.println(compared + " decisions compared, " + stopped + " stopped early (" + saved
+                + " iterations saved), no difference");
+    }
+
+    /**
+     * @return the card both players play to state, null if they have a single playable card
+     * @throws AssertionError if they play different cards
+     */
+    private static Card play(MctsPlayer early, MctsPlayer full, TurnState state, long pkHand) {
+        if(PackedCardSet.size(PackedTrick.playableCards(state.packedTrick(), pkHand)) == 1)
+            return null;
+        CardSet hand = CardSet.ofPacked(pkHand);
+        Card earlyCard = early.cardToPlay(state, hand);
+        Card fullCard = full.cardToPlay(state, hand);
+        if(!earlyCard.equals(fullCard))
+            throw new AssertionError("the early stop played " + earlyCard + " instead of " + fullCard
+                    + " to " + state.trick() + " with " + hand);
+        return earlyCard;
+    }
+
+    /**
+     * @return the packed hands of the players, indexed by PlayerId.ordinal
+     */
+    private static long[] deal(long seed) {
+        List<Card> deck = new ArrayList<>();
+        for(int i = 0; i < CardSet.ALL_CARDS.size(); ++i)
+            deck.add(CardSet.ALL_CARDS.get(i));
+        Collections.shuffle(deck, new Random(seed));
+        long[] hands = new long[PlayerId.COUNT];
+        for(int p = 0; p < PlayerId.COUNT; ++p)
+            hands[p] = CardSet.of(deck.subList(p * Jass.HAND_SIZE, (p + 1) * Jass.HAND_SIZE)).packed();
+        return hands;
+    }
+
+    /**
+     * plays cards random playable cards from state, removing them from the hands
+     */
+    private static TurnState playRandomly(TurnState state, long[] hands, SplittableRandom rng, int cards) {
+        for(int i = 0; i < cards && !state.isTerminal(); ++i) {
+            int p = state.nextPlayer().ordinal();
+            long playable = PackedTrick.playableCards(state.packedTrick(), hands[p]);
+            int pkCard = PackedCardSet.get(playable, rng.nextInt(PackedCardSet.size(playable)));
+            hands[p] = PackedCardSet.remove(hands[p], pkCard);
+            state = state.withNewCardPlayedAndTrickCollected(Card.ofPacked(pkCard));
+        }
+        return state;
+    }
+}
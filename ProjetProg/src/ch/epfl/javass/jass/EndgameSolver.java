@@ -0,0 +1,234 @@
+package ch.epfl.javass.jass;
+
+import static ch.epfl.javass.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+import ch.epfl.javass.jass.Card.Color;
+
+/**
+ * exact alpha-beta search of the end of a turn, on the packed components of the states, walked
+ * with a MutableTurnState.
+ *
+ * The game solved is the one MctsPlayer samples: the player searching knows his hand, and any
+ * of the other players can play any card of the ones nobody knows the place of (that he can
+ * hold, see CardLocationTracker). The team of the player searching maximizes its turn points,
+ * the other team minimizes them. This is not the exact value of the real game, whose hands are
+ * hidden: each player of the other team picks from the pool as if he held the cards that hurt
+ * the most, and the partner as if he held the ones that help the most, without their hands ever
+ * having to be a consistent deal.
+ * Equivalent cards (same color and points, with no card held by somebody else between them,
+ * and none of them playable later in the same trick by another player) are only tried once,
+ * the cards that win the trick are tried first, and the values of the positions already
+ * solved are kept in a small transposition table indexed by their Zobrist key (see
+ * TurnState.zobristKey).
+ */
+final class EndgameSolver {
+
+    private static final int MAX_DEPTH = Jass.HAND_SIZE * PlayerId.COUNT + 1;
+    private static final int MAX_MOVES = Jass.HAND_SIZE * PlayerId.COUNT;
+
+    //the ranks of a color from the weakest to the strongest
+    private static final int[] PLAIN_ORDER = { 0, 1, 2, 3, 4, 5, 6, 7, 8 };
+    private static final int[] TRUMP_ORDER = { 0, 1, 2, 4, 6, 7, 8, 3, 5 };
+
+    private static final int EXACT = 0, LOWER_BOUND = 1, UPPER_BOUND = 2; //kind of the value stored
+    private static final int STORED = 1 << 30; //set in every entry written, so that an empty entry is 0
+    private static final int VALUE_MASK = (1 << 22) - 1;
+    private static final int NO_CARD = PackedCard.INVALID;
+
+    private final long[] tableKeys;
+    private final int[] tableData; //value, then kind of value, then best card
+    private final int tableMask;
+
+    private final int[][] moves = new int[MAX_DEPTH][MAX_MOVES];
+    private final int[][] moveOrder = new int[MAX_DEPTH][MAX_MOVES];
+
+    private final EndgameTablebase tablebase; //null if the last tricks are searched like the others
+    //the state searched, set by prepare, then played and undone in place
+    private final MutableTurnState state = MutableTurnState.initial(Color.SPADE, Score.INITIAL, PlayerId.PLAYER_1);
+
+    private long hand;
+    private PlayerId ownId;
+    private long[] canHold; //the cards every player can hold, null if nothing is known
+    private int rootCard; //best card of the state the search started from
+
+    /**
+     * @param log2TableSize the base 2 logarithm of the number of entries of the transposition table
+     * @param tablebase the outcomes of the last tricks, null to search them too
+     * @throws IllegalArgumentException if log2TableSize is not between 1 and 24
+     */
+    EndgameSolver(int log2TableSize, EndgameTablebase tablebase) {
+        checkArgument(1 <= log2TableSize && log2TableSize <= 24);
+        this.tablebase = tablebase;
+        tableKeys = new long[1 << log2TableSize];
+        tableData = new int[1 << log2TableSize];
+        tableMask = (1 << log2TableSize) - 1;
+    }
+
+    /**
+     * @param pkScore the packed score of the state to play to
+     * @param pkUnplayedCards the packed set of its unplayed cards
+     * @param pkTrick its packed trick, not full
+     * @param pkHand the packed hand of the player searching, who is the next to play
+     * @param ownId the player searching
+     * @param canHold the packed sets of the cards every player can hold, null if nothing is known
+     * @return the packed card the player searching should play
+     */
+    int bestCard(long pkScore, long pkUnplayedCards, int pkTrick, long pkHand, PlayerId ownId, long[] canHold) {
+        prepare(pkScore, pkUnplayedCards, pkTrick, pkHand, ownId, canHold);
+        search(-1, Integer.MAX_VALUE, 0);
+        return rootCard;
+    }
+
+    /**
+     * @param pkScore the packed score of a state
+     * @param pkUnplayedCards the packed set of its unplayed cards
+     * @param pkTrick its packed trick, not full
+     * @param pkHand the packed hand of the player searching
+     * @param ownId the player searching
+     * @param canHold the packed sets of the cards every player can hold, null if nothing is known
+     * @return the turn points the team of the player searching gets at the end of the turn
+     *         if everybody plays perfectly from that state
+     */
+    int value(long pkScore, long pkUnplayedCards, int pkTrick, long pkHand, PlayerId ownId, long[] canHold) {
+        prepare(pkScore, pkUnplayedCards, pkTrick, pkHand, ownId, canHold);
+        return search(-1, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * starts the search from the given state, and forgets the previous searches: their values
+     * depend on the hand and the constraints they were solved for
+     */
+    private void prepare(long pkScore, long pkUnplayedCards, int pkTrick, long pkHand, PlayerId ownId, long[] canHold) {
+        state.set(pkScore, pkUnplayedCards, pkTrick);
+        hand = pkHand;
+        this.ownId = ownId;
+        this.canHold = canHold;
+        Arrays.fill(tableKeys, 0);
+        Arrays.fill(tableData, 0);
+    }
+
+    private int index(long key) {
+        return (int)(key ^ (key >>> 32)) & tableMask;
+    }
+
+    /**
+     * @return the value of the current state, exact if it lies strictly between alpha and beta,
+     *         otherwise a bound on the side of the window it lies on (the state is left unchanged)
+     */
+    private int search(int alpha, int beta, int depth) {
+        long pkScore = state.packedScore();
+        long pkUnplayed = state.packedUnplayedCards();
+        int pkTrick = state.packedTrick();
+        long key = state.zobristKey();
+        if(pkTrick == PackedTrick.INVALID)
+            return PackedScore.turnPoints(pkScore, ownId.team());
+        if(tablebase != null && depth != 0 && PackedTrick.isLast(pkTrick) && PackedTrick.isEmpty(pkTrick))
+            return PackedScore.turnPoints(tablebase.withLastTrickPlayed(pkScore, pkUnplayed, pkTrick, hand, ownId),
+                    ownId.team());
+
+        int entry = index(key);
+        int tableCard = NO_CARD;
+        if(tableKeys[entry] == key && tableData[entry] != 0) {
+            int data = tableData[entry];
+            int value = (data >>> 8) & VALUE_MASK;
+            int kind = (data >>> 6) & 0b11;
+            if(kind == EXACT || (kind == LOWER_BOUND && value >= beta)
+                    || (kind == UPPER_BOUND && value <= alpha))
+                return value;
+            tableCard = data & NO_CARD;
+        }
+
+        PlayerId player = PackedTrick.player(pkTrick, PackedTrick.size(pkTrick));
+        boolean maximizing = player.team() == ownId.team();
+        int moveCount = orderedMoves(pkUnplayed, pkTrick, player, tableCard, depth);
+
+        int originalAlpha = alpha, originalBeta = beta;
+        int best = maximizing ? -1 : Integer.MAX_VALUE;
+        int bestCard = NO_CARD;
+        for(int i = 0; i < moveCount && alpha < beta; ++i) {
+            int pkCard = moves[depth][i];
+            int undos = state.playAndCollect(pkCard);
+            int value = search(alpha, beta, depth + 1);
+            for(; undos > 0; --undos)
+                state.undo();
+            if(maximizing ? value > best : value < best) {
+                best = value;
+                bestCard = pkCard;
+            }
+            if(maximizing)
+                alpha = Math.max(alpha, value);
+            else
+                beta = Math.min(beta, value);
+        }
+
+        int kind = best <= originalAlpha ? UPPER_BOUND : best >= originalBeta ? LOWER_BOUND : EXACT;
+        if(depth == 0)
+            rootCard = bestCard;
+        tableKeys[entry] = key;
+        tableData[entry] = STORED | best << 8 | kind << 6 | bestCard;
+        return best;
+    }
+
+    /**
+     * writes in moves[depth] the cards player can play, one per group of equivalent cards,
+     * the card of the transposition table first, then the ones that win the trick, then the
+     * others, the ones worth the most points first
+     * @return the number of cards written
+     */
+    private int orderedMoves(long pkUnplayed, int pkTrick, PlayerId player, int tableCard, int depth) {
+        long holder = player == ownId ? PackedCardSet.intersection(hand, pkUnplayed)
+                : CardLocationTracker.possibleCards(PackedCardSet.difference(pkUnplayed, hand), canHold, player);
+        long playable = PackedTrick.playableCards(pkTrick, holder);
+        Color trump = PackedTrick.trump(pkTrick);
+
+        long trickCards = PackedCardSet.EMPTY;
+        for(int i = 0; i < PackedTrick.size(pkTrick); ++i)
+            trickCards = PackedCardSet.add(trickCards, PackedTrick.card(pkTrick, i));
+        long others = PackedCardSet.union(PackedCardSet.difference(pkUnplayed, holder), trickCards);
+        //the unknown cards are shared by three players, so the one that is not played could
+        //still beat the other one in this trick, unless only the player searching plays after
+        boolean pruneEquivalents = player == ownId || PackedTrick.size(pkTrick) == PlayerId.COUNT - 1
+                || (PackedTrick.size(pkTrick) == PlayerId.COUNT - 2
+                    && PackedTrick.player(pkTrick, PlayerId.COUNT - 1) == ownId);
+        int winningCard = PackedTrick.isEmpty(pkTrick) ? NO_CARD
+                : PackedTrick.card(pkTrick, PackedTrick.winningPosition(pkTrick));
+
+        int[] cards = moves[depth];
+        int[] order = moveOrder[depth];
+        int count = 0;
+        for(Color color : Color.ALL) {
+            int[] ranks = color == trump ? TRUMP_ORDER : PLAIN_ORDER;
+            int lastPoints = -1;
+            for(int rank : ranks) {
+                int pkCard = PackedCard.pack(color, Card.Rank.ALL.get(rank));
+                if(PackedCardSet.contains(playable, pkCard)) {
+                    int points = PackedCard.points(trump, pkCard);
+                    if(pruneEquivalents && points == lastPoints) //equivalent to the last card kept
+                        continue;
+                    lastPoints = points;
+
+                    boolean wins = winningCard == NO_CARD || PackedCard.isBetter(trump, pkCard, winningCard);
+                    cards[count] = pkCard;
+                    order[count] = pkCard == tableCard ? Integer.MAX_VALUE : (wins ? 1 << 8 : 0) | points;
+                    ++count;
+                }
+                else if(PackedCardSet.contains(others, pkCard))
+                    lastPoints = -1; //somebody else holds a card in between
+            }
+        }
+
+        for(int i = 1; i < count; ++i) { //insertion sort, from the highest order to the lowest
+            int card = cards[i], key = order[i];
+            int j = i - 1;
+            for(; j >= 0 && order[j] < key; --j) {
+                cards[j + 1] = cards[j];
+                order[j + 1] = order[j];
+            }
+            cards[j + 1] = card;
+            order[j + 1] = key;
+        }
+        return count;
+    }
+}
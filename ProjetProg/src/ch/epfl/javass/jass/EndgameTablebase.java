@@ -0,0 +1,149 @@
+package ch.epfl.javass.jass;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import ch.epfl.javass.jass.Card.Color;
+
+/**
+ * the exact outcome of every last trick of a turn, as the search of MctsPlayer sees it: the player
+ * searching holds one of the four cards left, and the three other players play the three others
+ * in the best order for their team (see EndgameSolver).
+ *
+ * A last trick is identified by its four cards, the one of the player searching, the position he
+ * plays at and the trump: one byte per trick holds the points his team makes with it, which makes
+ * a file of 3.8 MB. The file is written once by main and memory-mapped by load, so that the
+ * players of every game running on the machine share the same pages.
+ */
+public final class EndgameTablebase {
+
+    private static final int MAGIC = 0x4A544231; //"JTB1"
+    private static final int HEADER_SIZE = Integer.BYTES;
+
+    private static final int CARDS = Jass.HAND_SIZE * PlayerId.COUNT;
+    private static final int TRICK_CARDS = PlayerId.COUNT;
+    private static final int TRICKS = (int) PackedCardSet.subsetCount(CARDS, TRICK_CARDS); //sets of four cards
+    private static final int ENTRIES = TRICKS * TRICK_CARDS * PlayerId.COUNT * Color.COUNT;
+
+    private final ByteBuffer entries;
+
+    private EndgameTablebase(ByteBuffer entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @param file a file written by write
+     * @return the tablebase of that file, memory-mapped
+     * @throws IOException if the file cannot be read or is not a tablebase
+     */
+    public static EndgameTablebase load(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if(channel.size() != HEADER_SIZE + ENTRIES)
+                throw new IOException(file + " is not an endgame tablebase");
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(mapped.getInt(0) != MAGIC)
+                throw new IOException(file + " is not an endgame tablebase");
+            return new EndgameTablebase(mapped);
+        }
+    }
+
+    /**
+     * solves every last trick and writes their outcomes to file
+     * @param file the file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file) throws IOException {
+        ByteBuffer content = ByteBuffer.allocate(HEADER_SIZE + ENTRIES);
+        content.putInt(MAGIC);
+
+        for(int cards = 0; cards < TRICKS; ++cards) {
+            long unplayed = PackedCardSet.ofCombinationIndex(cards, TRICK_CARDS);
+            for(int own = 0; own < TRICK_CARDS; ++own)
+                for(int position = 0; position < PlayerId.COUNT; ++position)
+                    for(Color trump : Color.ALL) {
+                        long hand = PackedCardSet.singleton(PackedCardSet.get(unplayed, own));
+                        int trick = PackedTrick.firstEmpty(trump, PlayerId.ALL.get((PlayerId.COUNT - position) % PlayerId.COUNT));
+                        content.put(HEADER_SIZE + index(unplayed, hand, position, trump),
+                                (byte) solve(trick, unplayed, hand, PlayerId.PLAYER_1));
+                    }
+        }
+
+        Files.write(file, content.array());
+    }
+
+    /**
+     * writes the tablebase to the file given as only argument
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length != 1) {
+            System.err.println("Utilisation: java ch.epfl.javass.jass.EndgameTablebase <fichier>");
+            System.exit(1);
+        }
+        write(Paths.get(args[0]));
+    }
+
+    /**
+     * @param pkUnplayed the four packed cards of the last trick
+     * @param pkHand the packed card of the player searching, alone
+     * @param position the position the player searching plays at in the trick
+     * @param trump the trump color
+     * @return the index of that last trick in the table
+     */
+    private static int index(long pkUnplayed, long pkHand, int position, Color trump) {
+        int cards = (int) PackedCardSet.combinationIndex(pkUnplayed); //among all the sets of four cards
+        int own = (int) PackedCardSet.combinationIndex(pkHand, pkUnplayed); //position of the card among the four
+        return ((cards * TRICK_CARDS + own) * PlayerId.COUNT + position) * Color.COUNT + trump.ordinal();
+    }
+
+    /**
+     * plays the trick perfectly, the player searching playing from pkHand and the others from the rest
+     * @return the points the team of ownId makes with the trick
+     */
+    private static int solve(int pkTrick, long pkUnplayed, long pkHand, PlayerId ownId) {
+        if(PackedTrick.isFull(pkTrick)) {
+            int points = PackedTrick.points(pkTrick) + Jass.LAST_TRICK_ADDITIONAL_POINTS; //the trick is not marked as last
+            return PackedTrick.winningPlayer(pkTrick).team() == ownId.team() ? points : 0;
+        }
+
+        PlayerId player = PackedTrick.player(pkTrick, PackedTrick.size(pkTrick));
+        long holder = player == ownId ? pkHand : PackedCardSet.difference(pkUnplayed, pkHand);
+        long playable = PackedTrick.playableCards(pkTrick, holder);
+
+        boolean maximizing = player.team() == ownId.team();
+        int best = maximizing ? 0 : Integer.MAX_VALUE;
+        for(int i = 0; i < PackedCardSet.size(playable); ++i) {
+            int pkCard = PackedCardSet.get(playable, i);
+            int value = solve(PackedTrick.withAddedCard(pkTrick, pkCard), PackedCardSet.remove(pkUnplayed, pkCard), pkHand, ownId);
+            best = maximizing ? Math.max(best, value) : Math.min(best, value);
+        }
+        return best;
+    }
+
+    /**
+     * plays the last trick of a turn perfectly
+     * @param pkScore the packed score before the last trick
+     * @param pkUnplayedCards the packed set of the four cards left
+     * @param pkTrick the last packed trick, empty
+     * @param pkHand the packed hand of the player searching, holding one of the four cards
+     * @param ownId the player searching
+     * @return the packed score at the end of the turn
+     */
+    long withLastTrickPlayed(long pkScore, long pkUnplayedCards, int pkTrick, long pkHand, PlayerId ownId) {
+        Color trump = PackedTrick.trump(pkTrick);
+        int position = (ownId.ordinal() - PackedTrick.player(pkTrick, 0).ordinal() + PlayerId.COUNT) % PlayerId.COUNT;
+        int ownPoints = entries.get(HEADER_SIZE + index(pkUnplayedCards, PackedCardSet.intersection(pkHand, pkUnplayedCards), position, trump));
+
+        if(ownPoints != 0) //the last trick is always worth some points
+            return PackedScore.withAdditionalTrick(pkScore, ownId.team(), ownPoints);
+
+        int points = Jass.LAST_TRICK_ADDITIONAL_POINTS;
+        for(long cards = pkUnplayedCards; cards != 0; cards &= cards - 1)
+            points += PackedCard.points(trump, PackedCardSet.get(Long.lowestOneBit(cards), 0));
+        return PackedScore.withAdditionalTrick(pkScore, ownId.team().other(), points);
+    }
+}
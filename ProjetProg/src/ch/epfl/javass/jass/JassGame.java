@@ -72,8 +72,9 @@ public final class JassGame {
      * do i have to explain this one
      */
     private void updateTrickForEverybody() {
+        Trick trick = turnstate.trick(); //immutable, so everybody can get the same one
         for(PlayerId play : PlayerId.ALL) {
-            players.get(play).updateTrick(turnstate.trick());
+            players.get(play).updateTrick(trick);
         }
     }
 
@@ -127,14 +128,16 @@ public final class JassGame {
         this.playerToBegin = PlayerId.ALL.get((PlayerId.ALL.indexOf(playerToBegin)+1)%4);
         //updates the next player
 
-        turnstate = TurnState.initial(currentTrump, score.nextTurn(), playerToBegin);
+        Score nextTurnScore = score.nextTurn();
+        turnstate = TurnState.initial(currentTrump, nextTurnScore, playerToBegin);
         //updates the turnstate
 
+        Trick trick = turnstate.trick();
         for(PlayerId play : PlayerId.ALL) {
             //updates the trump, score and trick for everyone
             players.get(play).setTrump(currentTrump);
-            players.get(play).updateScore(score.nextTurn());
-            players.get(play).updateTrick(turnstate.trick());
+            players.get(play).updateScore(nextTurnScore);
+            players.get(play).updateTrick(trick);
             players.get(play).updateHand(CardSet.ofPacked(cards[play.ordinal()]));
         }
     }
@@ -145,14 +148,14 @@ public final class JassGame {
      */
     private void playersPlay() {
 
-        while(!turnstate.trick().isFull()) {
+        while(!PackedTrick.isFull(turnstate.packedTrick())) {
 
             PlayerId p = turnstate.nextPlayer();
             Card c = players.get(p).cardToPlay(turnstate, CardSet.ofPacked(cards[p.ordinal()]));
             //determines the next player and the card he wants to play
 
-            players.get(p).updateHand(CardSet.ofPacked(cards[PlayerId.ALL.indexOf(p)]).remove(c));
-            cards[PlayerId.ALL.indexOf(p)] = PackedCardSet.remove(cards[PlayerId.ALL.indexOf(p)], c.packed());
+            cards[p.ordinal()] = PackedCardSet.remove(cards[p.ordinal()], c.packed());
+            players.get(p).updateHand(CardSet.ofPacked(cards[p.ordinal()]));
             turnstate = turnstate.withNewCardPlayed(c);
             //plays that card, and removes it from the hand of the player
 
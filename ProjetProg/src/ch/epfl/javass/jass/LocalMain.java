@@ -16,6 +16,27 @@ public class LocalMain extends Application {
         launch(args);
     }
 
+    /**
+     * @param id the id of the simulated player
+     * @param rngSeed the seed of the simulated player
+     * @param budget either a number of iterations (at least 10) or a number of milliseconds followed by "ms"
+     * @return the simulated player searching within that budget
+     * @throws NumberFormatException if budget is neither of these
+     */
+    private static MctsPlayer simulatedPlayer(PlayerId id, long rngSeed, String budget) {
+        if(budget.endsWith("ms")) {
+            long timeBudget = Long.parseLong(budget.substring(0, budget.length() - 2));
+            if(timeBudget < 1)
+                throw new NumberFormatException();
+            return new MctsPlayer(id, rngSeed, Integer.MAX_VALUE, MctsSettings.DEFAULT.withTimeBudget(timeBudget));
+        }
+
+        int iterations = Integer.parseInt(budget);
+        if(iterations < 10)
+            throw new NumberFormatException();
+        return new MctsPlayer(id, rngSeed, iterations);
+    }
+
     @Override
     public void start(Stage primaryStage) {
         List<String> parameters = new ArrayList<>(getParameters().getRaw());
@@ -28,6 +49,8 @@ public class LocalMain extends Application {
                     "  h                un joueur humain nommé par défaut (Aline, Bastien, Colette, David)\n" +
                     "  s:[<nom>]:<ite>  un joueur simulé utilisant <ite> itérations éventuellement nommé <nom>,\n" +
                     "                        sinon nommé par défaut\n" +
+                    "  s:[<nom>]:<t>ms  un joueur simulé décidant en au plus <t> millisecondes, éventuellement\n" +
+                    "                        nommé <nom>, sinon nommé par défaut\n" +
                     "  r:[<nom>]:<adr>  un joueur humain à distance, localisé à l'adresse IP <adr>,\n" +
                     "                        éventuellement nommé <nom>, sinon nommé par défaut");
             System.exit(-1);
@@ -90,11 +113,9 @@ public class LocalMain extends Application {
 
                         case 3:
                             try {
-                                if(Integer.parseInt(playerArgs[2]) < 10)
-                                    throw new NumberFormatException();
-                                players.put(PlayerId.ALL.get(i), new PacedPlayer(new MctsPlayer(PlayerId.ALL.get(i), rngSeeds[i], Integer.parseInt(playerArgs[2])), 1));
+                                players.put(PlayerId.ALL.get(i), new PacedPlayer(simulatedPlayer(PlayerId.ALL.get(i), rngSeeds[i], playerArgs[2]), 1));
                             } catch (NumberFormatException e){
-                                System.err.println("Third argument of simulated player " + (i + 1) + "is no number or is smaller than 10.");
+                                System.err.println("Third argument of simulated player " + (i + 1) + " is neither a number of at least 10 nor a time budget such as 150ms.");
                                 System.exit(-7);
                             }
 
@@ -1,8 +1,15 @@
 package ch.epfl.javass.jass;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
 public class MctsPlayer implements Player{
     // oh boi, here we go
@@ -13,176 +20,339 @@ public class MctsPlayer implements Player{
      * @param iterations the number of mcts iterations
      */
     public MctsPlayer(PlayerId ownId, long rngSeed, int iterations) {
+        this(ownId, rngSeed, iterations, 1);
+    }
+
+    /**
+     * @param ownId the PlayerId of the current player
+     * @param rngSeed the seed used for all rng inside the player
+     * @param iterations the number of mcts iterations, shared between all the trees
+     * @param parallelism the number of independent trees searched at the same time
+     *                    (root parallelism), 1 meaning the usual single-threaded search
+     */
+    public MctsPlayer(PlayerId ownId, long rngSeed, int iterations, int parallelism) {
+        this(ownId, rngSeed, iterations, MctsSettings.DEFAULT.withParallelism(parallelism));
+    }
+
+    /**
+     * @param ownId the PlayerId of the current player
+     * @param rngSeed the seed used for all rng inside the player
+     * @param iterations the number of mcts iterations, shared between all the threads
+     *                   (the maximal number of them if settings has a time budget)
+     * @param settings the way the search is run (see MctsSettings)
+     */
+    public MctsPlayer(PlayerId ownId, long rngSeed, int iterations, MctsSettings settings) {
         if(iterations < Jass.HAND_SIZE)
             throw new IllegalArgumentException();
 
         ownName = ownId;
         rng = new SplittableRandom(rngSeed);
         this.iterations = iterations;
+        this.parallelism = Math.min(settings.parallelism(), iterations); //every thread gets at least one iteration
+        this.sharedTree = settings.sharedTree();
+        this.timeBudget = settings.timeBudget() * 1_000_000; //in nanoseconds
+        this.pondering = settings.pondering() && this.parallelism == 1;
+        this.treeReuse = settings.treeReuse() || pondering; //the pondered tree is kept for the decision
+        searchPool = this.parallelism == 1 ? null : new ForkJoinPool(this.parallelism);
+        ponderRng = pondering ? rng.split() : null;
+        ponderer = pondering ? Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "ponderer of " + ownId);
+            t.setDaemon(true); //a game that ends while a player ponders does not keep the program running
+            return t;
+        }) : null;
+        //one table for all the trees, so that the threads also share the positions they visit
+        table = settings.transpositionTableSize() == 0 ? null : new TranspositionTable(settings.transpositionTableSize());
+        endgameCards = settings.endgameCards();
+        tablebase = settings.tablebase();
+        rave = settings.raveEquivalence() != 0;
+        earlyStopInterval = this.parallelism == 1 ? settings.earlyStopInterval() : 0;
+        rolloutsPerLeaf = settings.rolloutsPerLeaf();
+        tracker = settings.cardTracking() ? new CardLocationTracker() : null;
+        solver = endgameCards == 0 ? null : new EndgameSolver(ENDGAME_TABLE_SIZE, tablebase);
+
+        //the trees are allocated once and reused for every decision,
+        //each iteration adds at most one node so they can only be full with a time budget, a cap, a kept
+        //subtree or more iterations than MctsTree.MAX_CAPACITY (the search then prunes the tree or keeps
+        //evaluating the leaves without growing it)
+        trees = new MctsTree[sharedTree ? 1 : this.parallelism];
+        boolean recycling = settings.nodeCap() != 0 && !(sharedTree && this.parallelism > 1);
+        for(int t = 0; t < trees.length; ++t) {
+            int treeSize = share(iterations, trees.length, t);
+            if(timeBudget != 0)
+                treeSize = Math.min(treeSize, TIME_BUDGET_TREE_SIZE);
+            if(treeReuse)
+                treeSize = Math.min(treeSize, Integer.MAX_VALUE / 2 - 1) * 2; //room for the kept subtree
+            if(pondering)
+                treeSize = Math.min(treeSize, Integer.MAX_VALUE / PONDERING_TREE_FACTOR - 1) * PONDERING_TREE_FACTOR;
+            if(settings.nodeCap() != 0) //the root and its sons always fit
+                treeSize = Math.min(treeSize, Math.max(share(settings.nodeCap(), trees.length, t), Jass.HAND_SIZE * PlayerId.COUNT + 1) - 1);
+            treeSize = Math.min(treeSize, MctsTree.MAX_CAPACITY - 1); //every column is allocated up front
+            trees[t] = new MctsTree(treeSize + 1, settings.offHeapTree(), table, settings.raveEquivalence(), recycling);
+        }
     }
 
+    private static final int EXPLORATION = 40; //the c variable used on the way down
+    private static final int MAX_PATH_LENGTH = Jass.HAND_SIZE * Jass.NUMBER_OF_PLAYERS; //a path cannot play more cards than that
+    private static final int TIME_BUDGET_TREE_SIZE = 1 << 18; //nodes per tree when the iterations only bound the search
+    private static final int DEADLINE_CHECK_MASK = 0xF; //the deadline is checked every 16 iterations
+    private static final int ENDGAME_TABLE_SIZE = 16; //log2 of the entries of the solver's table
+    private static final int PONDERING_TREE_FACTOR = 4; //most of the pondered nodes are under cards that are not played
+
     private PlayerId ownName;
     private SplittableRandom rng;
     private int iterations;
+    private int parallelism;
+    private boolean sharedTree;
+    private long timeBudget; //0 when there is none
+    private boolean treeReuse;
+    private int lastTrick = PackedTrick.INVALID; //last trick received by updateTrick
+    private boolean pondering;
+    private SplittableRandom ponderRng; //the pondering thread's, so that it never shares rng
+    private ExecutorService ponderer; //null when the player does not ponder
+    private Future<?> ponderTask; //null when the player is not pondering
+    private volatile boolean stopPondering;
+    private long knownHand = PackedCardSet.EMPTY; //the state of the turn as told by the update methods
+    private long knownScore = PackedScore.INITIAL;
+    private long knownUnplayed = PackedCardSet.ALL_CARDS;
+    private ForkJoinPool searchPool; //null when the search is single-threaded
+    private TranspositionTable table; //null when the nodes share no statistics
+    private long tableUnplayed = PackedCardSet.EMPTY; //unplayed cards of the last search that used the table
+    private int endgameCards;
+    private EndgameSolver solver; //null when the end of the turn is searched like the rest
+    private EndgameTablebase tablebase; //null when the last tricks are played randomly too
+    private boolean rave;
+    private int earlyStopInterval; //0 when every iteration is run
+    private int rolloutsPerLeaf;
+    private CardLocationTracker tracker; //null when the other players can get any card of the pool
+    private long savedIterations;
+    private MctsTree[] trees;
 
-    private class Node{ //cannot be static because I use ownName inside of this class
-
-        private TurnState ts;
-        private Node[] children;
-        private int bigS = 0;
-        private int bigN = 0;
-        private int numberOfChildren = 0;
-        private CardSet playableCards;
-        private PlayerId PlayerThatPlayedThisNode;
-        private CardSet hand;
+    /**
+     * @param total the number of iterations to be split
+     * @param parts the number of threads that split them
+     * @param part the index of one of these threads
+     * @return the number of iterations that thread runs
+     */
+    private static int share(int total, int parts, int part) {
+        return total / parts + (part < total % parts ? 1 : 0);
+    }
 
+    /**
+     * @param iteration the number of iterations already run by a thread
+     * @param deadline the System.nanoTime() at which the decision must be taken
+     * @return true if the thread must stop searching, which never happens before the root
+     *         could get all of its sons
+     */
+    private boolean isPastDeadline(int iteration, long deadline) {
+        return timeBudget != 0
+                && (iteration & DEADLINE_CHECK_MASK) == 0
+                && iteration >= Jass.HAND_SIZE
+                && System.nanoTime() - deadline > 0;
+    }
 
-        /**
-         * @param t the turnstate the node represents
-         * @param hand the hand of the current player
-         * @param player the player that played the card that led to this node
-         */
-        private Node(TurnState t, CardSet hand, PlayerId player){
-            ts = t; //t is always a new turnstate, so no access safety problems here
+    /**
+     * empties the tree, or only keeps the subtree representing state if the tree is reused
+     * @param tree the tree to prepare for the search
+     * @param state the current state the player has to play to
+     * @param hand the hand available to him
+     */
+    private void prepare(MctsTree tree, TurnState state, CardSet hand) {
+        long[] canHold = tracker == null ? null : tracker.packedCanHold();
+        if(!treeReuse || !tree.reuse(state, hand, canHold))
+            tree.reset(state, hand, ownName, rootPlayer(state), canHold);
+    }
 
-            this.hand = hand;
+    /**
+     * @param state the state of the root
+     * @return the player to the right of the next one, said to have played the root (just so that the sons
+     *         are marked as played by the next one, the current player when he has to play)
+     */
+    private static PlayerId rootPlayer(TurnState state) {
+        return PlayerId.ALL.get((PlayerId.ALL.indexOf(state.nextPlayer())+3)%4);
+        //(+3 and not -1 because in java negative modulo values are not equal to the mathematically correct version)
+    }
 
-            if(ts.trick().isFull())
-                ts = ts.withTrickCollected(); //stored turnstate cannot be full
+    /**
+     * @param tree the tree the node belongs to
+     * @param node the node to be evaluated
+     * @param hand the hand available
+     * @param rng the random generator of the thread searching the tree
+     * @param played filled with the cards each player plays, null if they are not needed
+     * @return the packed score of the game, randomly played from the node (the average of
+     *         rolloutsPerLeaf rollouts)
+     */
+    private long randomlyEvaluate(MctsTree tree, int node, CardSet hand, SplittableRandom rng, long[] played) {
+        return PackedRollout.playAveraged(rolloutsPerLeaf, tree.packedScore(node), tree.packedUnplayedCards(node),
+                tree.packedTrick(node), hand.packed(), ownName, tree.canHold(), rng, tablebase, played);
+    }
 
-            PlayerId next = ts.nextPlayer(); //next is the next player to play
+    /**
+     * @param tree the tree the node belongs to
+     * @param node the node to be evaluated, which was just added to the tree
+     * @param hand the hand available
+     * @param rng the random generator of the thread searching the tree
+     * @param played emptied, then filled with the cards each player plays after the node, null if
+     *               they are not needed (RAVE)
+     * @return the packed score of the game, randomly played from the node
+     */
+    private long evaluate(MctsTree tree, int node, CardSet hand, SplittableRandom rng, long[] played) {
+        if(played != null)
+            Arrays.fill(played, PackedCardSet.EMPTY);
+        return randomlyEvaluate(tree, node, hand, rng, played);
+    }
 
-            if(next == ownName) //that condition is the reason why node is not static (not a big deal tho)
-                playableCards = ts.trick().playableCards(hand.intersection(ts.unplayedCards()));
-            else
-                playableCards = ts.unplayedCards().difference(hand);
-            //playableCards represents the cards the next player will be able to play
+    /**
+     * empties the transposition table if state belongs to another turn than the last search that
+     * used it: its positions were visited with another hand. Called before a search starts
+     * @param state the state the next search starts from
+     */
+    private void forgetOtherTurns(TurnState state) {
+        if(table == null)
+            return;
+        long unplayed = state.packedUnplayedCards();
+        if(PackedCardSet.intersection(unplayed, tableUnplayed) != unplayed) //cards came back: a new turn
+            table.clear();
+        tableUnplayed = unplayed;
+    }
 
-            children = new Node[playableCards.size()];
+    /**
+     * @return the number of iterations the player did not run because they could not change the
+     *         card he played, since he was created
+     */
+    public long savedIterations() {
+        return savedIterations;
+    }
 
-            PlayerThatPlayedThisNode = player;
-        }
+    /**
+     * @return the number of times the trees of the player pruned their least visited leaves
+     *         because they reached the node cap, since he was created
+     */
+    public long prunings() {
+        long prunings = 0;
+        for(MctsTree tree : trees)
+            prunings += tree.prunings();
+        return prunings;
+    }
 
-        /**
-         * adds a son to the current node, assumes it is possible
-         * @return the son that was added
-         */
-        private Node AddASon(){
-            PlayerId sonPlayer = ts.nextPlayer(); //ts is never full by construction (see Node constructor)
-            Node k = new Node(ts.withNewCardPlayed(playableCards.get(numberOfChildren)), hand, sonPlayer);
-            //k is the son of the current instance that represents
-            //the smallest playable card that was not played yet
-
-            children[numberOfChildren] = k; //place it where it belongs
-            ++numberOfChildren; //current instance of node gained a son
-            return k;
-        }
+    /**
+     * @return the number of nodes the trees of the player pruned, since he was created
+     */
+    public long prunedNodes() {
+        long prunedNodes = 0;
+        for(MctsTree tree : trees)
+            prunedNodes += tree.prunedNodes();
+        return prunedNodes;
+    }
 
+    /**
+     * @return the transposition table shared by the nodes of the trees, null if there is none
+     */
+    TranspositionTable transpositionTable() {
+        return table;
+    }
 
-        /**
-         * @param c the variable c in the value computation formula
-         * @return the index of the best son of the current node
-         */
-        private int selectBestSon(int c) {
-            if(numberOfChildren == 0) {
-                return -1; //returns -1 when the node has no children
+    /**
+     * @param tree the tree to search, emptied or reused first
+     * @param state the current state the player has to play to
+     * @param hand the hand available to him
+     * @param rng the random generator used by that tree only
+     * @param treeIterations the number of iterations run on that tree
+     * @param deadline the System.nanoTime() at which the search stops if there is a time budget
+     * @param ponder true if the search runs in the background until stopPondering is set, false if
+     *               it runs for a decision
+     */
+    private void search(MctsTree tree, TurnState state, CardSet hand, SplittableRandom rng, int treeIterations,
+                        long deadline, boolean ponder) {
+        prepare(tree, state, hand);
+        int[] path = new int[MAX_PATH_LENGTH];
+        long[] played = rave ? new long[PlayerId.COUNT] : null;
+        if(pondering && !ponder) //the pondered iterations count for the decision
+            treeIterations = Math.max(treeIterations - tree.sonVisits(tree.root()), Jass.HAND_SIZE);
+
+        for(int i = 0; i < treeIterations && !(ponder ? stopPondering || tree.isFull() : isPastDeadline(i, deadline)); ++i) {
+            if(!ponder && earlyStopInterval != 0 && i % earlyStopInterval == 0 && tree.isRootDecided(treeIterations - i)) {
+                savedIterations += treeIterations - i;
+                break;
             }
-            int indexOfBest = 0; //by default the best son is the first
-            for(int i = 0; i < numberOfChildren; ++i){
-                if(sonValue(c,indexOfBest) < sonValue(c,i)) {
-                    indexOfBest = i;
-                }
-            } //iterates through all of the children and finds the best
-            return indexOfBest;
-        }
+            int length = tree.addValidDescendant(EXPLORATION, path); //adds a descendant (will happen iterations times)
 
+            int addedNode = length == 0 ? tree.root() : path[length-1];
+            long nodeScore = evaluate(tree, addedNode, hand, rng, played); //evaluates that descendant
 
-        /**
-         * @param c the c variable in the value-computation formula
-         * @param i the index of the son to be evaluated
-         * @return the value of the son at index i
-         */
-        private double sonValue(double c, int i) {
-            if(children[i] == null)
-                return -1;
-            if(bigN == 0) //avoids log(0), because this method computes the son's value and not the current node's,
-                // therefore it adds this problem. As a trade-off, i don't have to pay attention to that
-                // +infinity value in the formula, it never happens
-                return ((double)children[i].bigS/(double)children[i].bigN);
-
-            return ((double)children[i].bigS/(double)children[i].bigN) + c * Math.sqrt((2*Math.log(bigN))/children[i].bigN);
-            //computes the value as mentioned in the specifications
+            tree.backPropagate(path, length, nodeScore, played); //propagates the values computed
         }
+    }
 
-        /**
-         * looks for an optimal place to create a node and adds a node there
-         * @return the arrayList of nodes between the original father and the
-         * created node, first one excluded and last one included
-         */
-        private List<Node> addValidDescendant(){
-            boolean mustContinue = true;
-            List<Node> familyTree = new ArrayList<>();
-            Node currentFather = this;
-
-            while(mustContinue) { //while the right place has not been found
-                if (currentFather.numberOfChildren < currentFather.playableCards.size()) {
-                    //adds a son and stops the loop if the current node doesn't have all of its children
-                    Node l = currentFather.AddASon();
-                    familyTree.add(l);
-                    mustContinue = false;
-
-                } else if (currentFather.playableCards.size() == 0) {
-                    //stops if we reach the bottom
-                    break;
-
-                } else {
-                    //adds the current father to the list and keeps going
-                    currentFather = currentFather.children[currentFather.selectBestSon(40)];
-                    familyTree.add(currentFather); //note that the very first node is not in the list,
-                                           //we don't care about that one since we'll only call that method on
-                                           //the node representing the current turnstate, which doesn't need updates
+    /**
+     * searches a single tree with parallelism threads descending it at the same time
+     * (tree parallelism), the result depends on how the threads were scheduled
+     * @param tree the tree to search, emptied or reused first
+     * @param state the current state the player has to play to
+     * @param hand the hand available to him
+     * @param deadline the System.nanoTime() at which the search stops if there is a time budget
+     */
+    private void sharedSearch(MctsTree tree, TurnState state, CardSet hand, long deadline) {
+        prepare(tree, state, hand);
+
+        List<ForkJoinTask<?>> searches = new ArrayList<>(parallelism);
+        for(int t = 0; t < parallelism; ++t) {
+            SplittableRandom threadRng = rng.split();
+            int threadIterations = share(iterations, parallelism, t);
+            searches.add(searchPool.submit(() -> {
+                int[] path = new int[MAX_PATH_LENGTH];
+                long[] played = rave ? new long[PlayerId.COUNT] : null;
+                for(int i = 0; i < threadIterations && !isPastDeadline(i, deadline); ++i) {
+                    int length = tree.addValidDescendantConcurrently(EXPLORATION, path);
+
+                    int addedNode = length == 0 ? tree.root() : path[length-1];
+                    long nodeScore = evaluate(tree, addedNode, hand, threadRng, played);
+                    //visits were counted on the way down, only the scores are left
+                    tree.backPropagateConcurrently(path, length, nodeScore, played);
                 }
-            }
-            return familyTree;
+            }));
         }
+        for(ForkJoinTask<?> search : searches)
+            search.join();
     }
 
     /**
-     * @param n the node to be evaluated
-     * @param hand the hand available
-     * @return a score of the game, randomly played from the node
-     */
-    private Score randomlyEvaluate(Node n, CardSet hand) {
-        TurnState tempTs = n.ts; //gets the current turnstate
-
-        CardSet ownPlayerHand = hand.difference(n.ts.unplayedCards().complement());
-        CardSet playableOther = tempTs.unplayedCards().difference(hand);
-        //determines the cards playable by both the current player and the others
-        //we can't easily use n.playableCards here, because it would create branching
-        //and cause perf issues
-
-        while (!tempTs.isTerminal()) {
-
-            Card cardToPlay;
-
-            if (tempTs.nextPlayer() == ownName) {
-                //determines the playable cards, the played card and updates the hand when
-                //the player is the current instance of the player
-                CardSet playable = tempTs.trick().playableCards(ownPlayerHand);
-                cardToPlay = playable.get(rng.nextInt(playable.size()));
-                ownPlayerHand = ownPlayerHand.remove(cardToPlay);
-            } else {
-                //determines the playable cards, the played card and updates the hand when
-                //the player is not the current instance of the player
-                CardSet playable = tempTs.trick().playableCards(playableOther);
-                cardToPlay = playable.get(rng.nextInt(playable.size()));
-                playableOther = playableOther.remove(cardToPlay);
+     * searches parallelism independent trees at the same time and merges the
+     * statistics of their roots' sons
+     * @param state the current state the player has to play to
+     * @param hand the hand available to him
+     * @param deadline the System.nanoTime() at which the search stops if there is a time budget
+     * @return the card that he plays
+     */
+    private Card rootParallelCardToPlay(TurnState state, CardSet hand, long deadline) {
+        List<ForkJoinTask<?>> searches = new ArrayList<>(parallelism);
+        for(int t = 0; t < parallelism; ++t) {
+            MctsTree tree = trees[t];
+            SplittableRandom treeRng = rng.split(); //split sequentially, so a fixed seed gives the same trees
+            int treeIterations = share(iterations, parallelism, t);
+            searches.add(searchPool.submit(() -> search(tree, state, hand, treeRng, treeIterations, deadline, false)));
+        }
+
+        long[] mergedS = new long[Long.SIZE];
+        long[] mergedN = new long[Long.SIZE];
+        //indexed by the packed card of the son, which is its position in a packed card set
+
+        for(int t = 0; t < parallelism; ++t) {
+            searches.get(t).join();
+            MctsTree tree = trees[t];
+            for(int son = tree.firstChild(tree.root()); son != MctsTree.NONE; son = tree.nextSibling(son)) {
+                int pkCard = tree.card(tree.root(), son);
+                mergedS[pkCard] += tree.scoreSum(son);
+                mergedN[pkCard] += tree.visits(son);
             }
+        }
 
-            tempTs = tempTs.withNewCardPlayedAndTrickCollected(cardToPlay);
-            //plays the card and collects the trick when needed
+        int bestCard = -1;
+        for(int c = 0; c < Long.SIZE; ++c) { //same as selectBestSon(0) on the merged statistics, smallest card first
+            if(mergedN[c] != 0 && (bestCard == -1 ||
+                    (double)mergedS[bestCard]/mergedN[bestCard] < (double)mergedS[c]/mergedN[c]))
+                bestCard = c;
         }
-        return tempTs.score();
+        return Card.ofPacked(bestCard);
     }
 
     /**
@@ -192,21 +362,149 @@ public class MctsPlayer implements Player{
      */
     @Override
     public Card cardToPlay(TurnState state, CardSet hand) {
-        Node father = new Node(state, hand, PlayerId.ALL.get((PlayerId.ALL.indexOf(ownName)+3)%4));
-        // adds a new node played by the player to the left (just so that the sons are marked as played by the current one)
-        //(+3 and not -1 because in java negative modulo values are not equal to the mathematically correct version)
-        for(int i = 0; i < iterations; ++i) {
-            List<Node> familyTree = father.addValidDescendant();//adds a descendant (will happen iterations times)
+        stopPondering();
+        long playable = PackedTrick.playableCards(state.packedTrick(), hand.packed());
+        if(PackedCardSet.size(playable) == 1) //nothing to search
+            return Card.ofPacked(PackedCardSet.get(playable, 0));
+
+        if(PackedCardSet.size(state.packedUnplayedCards()) <= endgameCards)
+            return Card.ofPacked(solver.bestCard(state.packedScore(), state.packedUnplayedCards(),
+                    state.packedTrick(), hand.packed(), ownName, tracker == null ? null : tracker.packedCanHold()));
+
+        long deadline = System.nanoTime() + timeBudget;
+        forgetOtherTurns(state);
 
-            Node addedNode = familyTree.get(familyTree.size()-1);
-            Score nodeScore = randomlyEvaluate(addedNode, hand); //evaluates that descendant
+        if(parallelism > 1 && !sharedTree)
+            return rootParallelCardToPlay(state, hand, deadline);
+
+        MctsTree tree = trees[0];
+        if(parallelism > 1)
+            sharedSearch(tree, state, hand, deadline);
+        else
+            search(tree, state, hand, rng, iterations, deadline, false);
+
+        //returns the card that was played by the best son after all of the computations
+        return Card.ofPacked(tree.card(tree.root(), tree.selectBestSon(tree.root(), 0)));
+    }
 
-            for(Node node : familyTree){ //propagates the values computed
-                node.bigS += nodeScore.totalPoints(node.PlayerThatPlayedThisNode.team());
-                ++node.bigN;
+    /**
+     * follows the card that was just played in every tree, so that the next search can
+     * start from the matching subtree, and in the card tracker
+     * @param newTrick the trick after that card was played
+     */
+    @Override
+    public void updateTrick(Trick newTrick) {
+        stopPondering();
+        if(!newTrick.isEmpty() && newTrick.packed() != lastTrick) {
+            //empty tricks bring no card, the collected trick is already part of the nodes
+            int pkCard = newTrick.card(newTrick.size() - 1).packed();
+            knownUnplayed = PackedCardSet.remove(knownUnplayed, pkCard);
+            if(tracker != null)
+                tracker.cardPlayed(newTrick.packed());
+            if(treeReuse) {
+                for(MctsTree tree : trees)
+                    tree.follow(pkCard);
             }
         }
-        //returns the card that was played by the best son after all of the computations
-        return father.ts.unplayedCards().difference(father.children[father.selectBestSon(0)].ts.unplayedCards()).get(0);
+        else if(newTrick.isEmpty() && newTrick.index() == 0) { //a new turn begins
+            knownUnplayed = PackedCardSet.ALL_CARDS;
+            if(tracker != null)
+                tracker.reset();
+        }
+        lastTrick = newTrick.packed();
+        startPondering();
+    }
+
+    /**
+     * @param newHand the hand of the player, after he played a card or at the beginning of a turn
+     */
+    @Override
+    public void updateHand(CardSet newHand) {
+        stopPondering();
+        knownHand = newHand.packed();
+        startPondering();
+    }
+
+    /**
+     * @param score the score, at the beginning of a turn or after a trick was collected
+     */
+    @Override
+    public void updateScore(Score score) {
+        stopPondering();
+        knownScore = score.packed();
+    }
+
+    /**
+     * @param winningTeam the team that won the game, which is over: the player is closed
+     */
+    @Override
+    public void setWinningTeam(TeamId winningTeam) {
+        close();
+    }
+
+    /**
+     * stops pondering and shuts down the threads of the player, which cannot search anymore
+     * (searching with parallelism then throws RejectedExecutionException). Called when the
+     * game is over, so that the players of the games already played leave no thread behind
+     */
+    public void close() {
+        stopPondering();
+        if(searchPool != null)
+            searchPool.shutdown();
+        if(ponderer != null)
+            ponderer.shutdown();
+    }
+
+    /**
+     * starts searching in the background from the current state of the turn, if the player ponders
+     * and the update methods told him all of it (they are not called in the same order at the
+     * beginning of the first turn and of the other ones, nor when he plays a card)
+     */
+    private void startPondering() {
+        if(!pondering || ponderer.isShutdown() || lastTrick == PackedTrick.INVALID || PackedTrick.isFull(lastTrick))
+            return;
+
+        int expectedHandSize = Jass.HAND_SIZE - PackedTrick.index(lastTrick);
+        for(int i = 0; i < PackedTrick.size(lastTrick); ++i) {
+            if(PackedTrick.player(lastTrick, i) == ownName)
+                --expectedHandSize;
+        }
+        if(PackedCardSet.size(knownHand) != expectedHandSize
+                || PackedCardSet.intersection(knownHand, knownUnplayed) != knownHand)
+            return;
+
+        TurnState state = TurnState.ofPackedComponents(knownScore, knownUnplayed, lastTrick);
+        CardSet hand = CardSet.ofPacked(knownHand);
+        forgetOtherTurns(state);
+        stopPondering = false;
+        //runs until the tree is full if nobody plays before, the kept subtree is then searched again
+        ponderTask = ponderer.submit(() -> search(trees[0], state, hand, ponderRng, Integer.MAX_VALUE, 0, true));
+    }
+
+    /**
+     * stops the background search, if there is one, and waits for it to leave the tree
+     */
+    private void stopPondering() {
+        if(ponderTask == null)
+            return;
+
+        stopPondering = true;
+        boolean interrupted = false;
+        try {
+            while(true) { //the tree cannot be touched before the search left it, even if interrupted
+                try {
+                    ponderTask.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            ponderTask = null;
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
     }
 }
@@ -0,0 +1,390 @@
+package ch.epfl.javass.jass;
+
+import static ch.epfl.javass.Preconditions.checkArgument;
+
+/**
+ * the knobs of an MctsPlayer's search that are not needed by every player,
+ * immutable so that one instance can be shared between several players
+ */
+public final class MctsSettings {
+
+    // the values of an instance, changed by one of the with methods before they are frozen in a new one
+    private static final class Builder {
+        private int parallelism = 1;
+        private boolean sharedTree = false;
+        private boolean offHeapTree = false;
+        private long timeBudget = 0;
+        private boolean treeReuse = false;
+        private int transpositionTableSize = 0;
+        private int endgameCards = 0;
+        private EndgameTablebase tablebase = null;
+        private int raveEquivalence = 0;
+        private int earlyStopInterval = 0;
+        private boolean pondering = false;
+        private int rolloutsPerLeaf = 1;
+        private int nodeCap = 0;
+        private boolean cardTracking = false;
+    }
+
+    private MctsSettings(Builder b) {
+        this.parallelism = b.parallelism;
+        this.sharedTree = b.sharedTree;
+        this.offHeapTree = b.offHeapTree;
+        this.timeBudget = b.timeBudget;
+        this.treeReuse = b.treeReuse;
+        this.transpositionTableSize = b.transpositionTableSize;
+        this.endgameCards = b.endgameCards;
+        this.tablebase = b.tablebase;
+        this.raveEquivalence = b.raveEquivalence;
+        this.earlyStopInterval = b.earlyStopInterval;
+        this.pondering = b.pondering;
+        this.rolloutsPerLeaf = b.rolloutsPerLeaf;
+        this.nodeCap = b.nodeCap;
+        this.cardTracking = b.cardTracking;
+    }
+
+    /**
+     * @return a builder holding the values of these settings, to be changed before building the copy
+     */
+    private Builder toBuilder() {
+        Builder b = new Builder();
+        b.parallelism = parallelism;
+        b.sharedTree = sharedTree;
+        b.offHeapTree = offHeapTree;
+        b.timeBudget = timeBudget;
+        b.treeReuse = treeReuse;
+        b.transpositionTableSize = transpositionTableSize;
+        b.endgameCards = endgameCards;
+        b.tablebase = tablebase;
+        b.raveEquivalence = raveEquivalence;
+        b.earlyStopInterval = earlyStopInterval;
+        b.pondering = pondering;
+        b.rolloutsPerLeaf = rolloutsPerLeaf;
+        b.nodeCap = nodeCap;
+        b.cardTracking = cardTracking;
+        return b;
+    }
+
+    private final int parallelism;
+    private final boolean sharedTree;
+    private final boolean offHeapTree;
+    private final long timeBudget;
+    private final boolean treeReuse;
+    private final int transpositionTableSize;
+    private final int endgameCards;
+    private final EndgameTablebase tablebase;
+    private final int raveEquivalence;
+    private final int earlyStopInterval;
+    private final boolean pondering;
+    private final int rolloutsPerLeaf;
+    private final int nodeCap;
+    private final boolean cardTracking;
+
+    /**
+     * the settings of the usual single-threaded search
+     */
+    public static final MctsSettings DEFAULT = new MctsSettings(new Builder());
+
+    /**
+     * @return the number of threads the search runs on
+     */
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return true if the threads descend one shared tree, false if every
+     *         thread searches its own tree (root parallelism)
+     */
+    public boolean sharedTree() {
+        return sharedTree;
+    }
+
+    /**
+     * @return true if the nodes' cards, tricks and scores are stored outside of the java heap
+     */
+    public boolean offHeapTree() {
+        return offHeapTree;
+    }
+
+    /**
+     * @return the number of milliseconds a decision may take, 0 if only the number of iterations limits it
+     */
+    public long timeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * @return true if the player keeps the part of its tree that is still reachable from one
+     *         decision to the next
+     */
+    public boolean treeReuse() {
+        return treeReuse;
+    }
+
+    /**
+     * @return the base 2 logarithm of the number of entries of the transposition table
+     *         shared by the nodes, 0 if they share none
+     */
+    public int transpositionTableSize() {
+        return transpositionTableSize;
+    }
+
+    /**
+     * @return the number of unplayed cards from which the player solves the end of the turn
+     *         exactly instead of searching it, 0 if he never does
+     */
+    public int endgameCards() {
+        return endgameCards;
+    }
+
+    /**
+     * @return the outcomes of the last tricks the player looks up instead of playing them, null if none
+     */
+    public EndgameTablebase tablebase() {
+        return tablebase;
+    }
+
+    /**
+     * @return the number of visits at which a son's own mean and its RAVE mean weigh the same, 0 without RAVE
+     */
+    public int raveEquivalence() {
+        return raveEquivalence;
+    }
+
+    /**
+     * @return the number of iterations between two checks that the card to play is decided, 0 for never
+     */
+    public int earlyStopInterval() {
+        return earlyStopInterval;
+    }
+
+    /**
+     * @return true if the player searches in the background while the others are playing
+     */
+    public boolean pondering() {
+        return pondering;
+    }
+
+    /**
+     * @return the number of random rollouts that evaluate each node added to the tree
+     */
+    public int rolloutsPerLeaf() {
+        return rolloutsPerLeaf;
+    }
+
+    /**
+     * @return the maximal number of nodes of all the trees of the player, 0 if only the iterations bound them
+     */
+    public int nodeCap() {
+        return nodeCap;
+    }
+
+    /**
+     * @return true if the search only gives the other players the cards they can still hold
+     */
+    public boolean cardTracking() {
+        return cardTracking;
+    }
+
+    /**
+     * @param parallelism the number of threads the search runs on
+     * @return the same settings, searching on parallelism threads
+     * @throws IllegalArgumentException if parallelism is smaller than 1
+     */
+    public MctsSettings withParallelism(int parallelism) {
+        checkArgument(parallelism >= 1);
+        Builder b = toBuilder();
+        b.parallelism = parallelism;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param sharedTree true if the threads should descend one shared tree,
+     *                   false if each of them should search its own
+     * @return the same settings, with that kind of parallelism
+     */
+    public MctsSettings withSharedTree(boolean sharedTree) {
+        Builder b = toBuilder();
+        b.sharedTree = sharedTree;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param offHeapTree true if the nodes' cards, tricks and scores should be stored outside
+     *                    of the java heap, which keeps very large trees away from the garbage collector
+     * @return the same settings, with the tree stored that way
+     */
+    public MctsSettings withOffHeapTree(boolean offHeapTree) {
+        Builder b = toBuilder();
+        b.offHeapTree = offHeapTree;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param timeBudget the number of milliseconds a decision may take: the search stops at
+     *                   that deadline even if iterations are left, 0 for no deadline
+     * @return the same settings, with that time budget
+     * @throws IllegalArgumentException if timeBudget is negative
+     */
+    public MctsSettings withTimeBudget(long timeBudget) {
+        checkArgument(timeBudget >= 0);
+        Builder b = toBuilder();
+        b.timeBudget = timeBudget;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param treeReuse true if the player should follow the cards played by everyone (see
+     *                  Player.updateTrick) and start its next search from the matching subtree
+     * @return the same settings, with or without tree reuse
+     */
+    public MctsSettings withTreeReuse(boolean treeReuse) {
+        Builder b = toBuilder();
+        b.treeReuse = treeReuse;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param transpositionTableSize the base 2 logarithm of the number of entries of a table through
+     *                               which the nodes reaching the same position by different orders of
+     *                               the cards share their visits: a new node gets the mean of its
+     *                               position as a prior (an entry takes 24 bytes, and the table is
+     *                               emptied at each new turn), 0 for none
+     * @return the same settings, with that transposition table
+     * @throws IllegalArgumentException if transpositionTableSize is not between 0 and 26
+     */
+    public MctsSettings withTranspositionTable(int transpositionTableSize) {
+        checkArgument(0 <= transpositionTableSize && transpositionTableSize <= 26);
+        Builder b = toBuilder();
+        b.transpositionTableSize = transpositionTableSize;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param endgameCards the number of unplayed cards (state's cards included) from which the end
+     *                     of the turn is solved by alpha-beta (see EndgameSolver) instead of being searched,
+     *                     0 for never. The solver plays the pooled game of the rollouts, not the real one:
+     *                     the other players pick from the cards nobody knows the place of as if they could
+     *                     see everything. Its time grows exponentially with the cards: 12 (3 tricks) are
+     *                     solved in milliseconds, 16 in up to a fraction of a second
+     * @return the same settings, with that endgame solver
+     * @throws IllegalArgumentException if endgameCards is not between 0 and 16
+     */
+    public MctsSettings withEndgameSolver(int endgameCards) {
+        checkArgument(0 <= endgameCards && endgameCards <= 16);
+        Builder b = toBuilder();
+        b.endgameCards = endgameCards;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param tablebase the outcomes of the last tricks (see EndgameTablebase.load), which the rollouts
+     *                  and the endgame solver then look up instead of playing them, null for none
+     * @return the same settings, with that tablebase
+     */
+    public MctsSettings withTablebase(EndgameTablebase tablebase) {
+        Builder b = toBuilder();
+        b.tablebase = tablebase;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param raveEquivalence with RAVE (all moves as first), a son of the tree also learns from the
+     *                        visits in which its player played its card later on: its value blends
+     *                        that mean with its own, both weighing the same once it has
+     *                        raveEquivalence visits of its own. 0 for no RAVE
+     * @return the same settings, with or without RAVE
+     * @throws IllegalArgumentException if raveEquivalence is negative
+     */
+    public MctsSettings withRave(int raveEquivalence) {
+        checkArgument(raveEquivalence >= 0);
+        Builder b = toBuilder();
+        b.raveEquivalence = raveEquivalence;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param earlyStopInterval the number of iterations between two checks that the remaining iterations
+     *                          cannot change the card played anymore, in which case the search stops
+     *                          (see MctsPlayer.savedIterations), 0 to always run every iteration.
+     *                          Only the single-threaded search stops early
+     * @return the same settings, with or without early stops
+     * @throws IllegalArgumentException if earlyStopInterval is negative
+     */
+    public MctsSettings withEarlyStop(int earlyStopInterval) {
+        checkArgument(earlyStopInterval >= 0);
+        Builder b = toBuilder();
+        b.earlyStopInterval = earlyStopInterval;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param pondering true if the player should search on a background thread while the other
+     *                  players choose their cards, following the cards they play (which implies tree
+     *                  reuse); the iterations already made under the state he has to play to are then
+     *                  deducted from the ones of his decision. Only the single-threaded search ponders
+     * @return the same settings, with or without pondering
+     */
+    public MctsSettings withPondering(boolean pondering) {
+        Builder b = toBuilder();
+        b.pondering = pondering;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param rolloutsPerLeaf the number of ordinary random rollouts played from each node added to the
+     *                        tree (see PackedRollout.playAveraged), which is then visited once with
+     *                        their average score. This only reduces the variance of the nodes' values:
+     *                        each rollout costs as much as a single one, so the iterations can be
+     *                        divided by rolloutsPerLeaf for the same number of rollouts, with a smaller
+     *                        tree. 1 for the usual single rollout
+     * @return the same settings, with that number of rollouts per node
+     * @throws IllegalArgumentException if rolloutsPerLeaf is smaller than 1
+     */
+    public MctsSettings withRolloutsPerLeaf(int rolloutsPerLeaf) {
+        checkArgument(rolloutsPerLeaf >= 1);
+        Builder b = toBuilder();
+        b.rolloutsPerLeaf = rolloutsPerLeaf;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param nodeCap the maximal number of nodes of all the trees of the player together (a node takes
+     *                about 70 bytes), 0 to size them after the iterations only. A tree searched by a
+     *                single thread that reaches its share of the cap prunes its least visited leaves
+     *                and keeps searching (see MctsPlayer.prunings), a shared tree stops growing
+     * @return the same settings, with that cap
+     * @throws IllegalArgumentException if nodeCap is negative
+     */
+    public MctsSettings withNodeCap(int nodeCap) {
+        checkArgument(nodeCap >= 0);
+        Builder b = toBuilder();
+        b.nodeCap = nodeCap;
+        return new MctsSettings(b);
+    }
+
+    /**
+     * @param cardTracking true if the player should keep track of the colors the others showed they
+     *                     do not hold (see CardLocationTracker), so that his tree and his rollouts
+     *                     only give them the cards they can still hold, false to give them any card
+     *                     nobody knows the place of
+     * @return the same settings, with or without card tracking
+     */
+    public MctsSettings withCardTracking(boolean cardTracking) {
+        Builder b = toBuilder();
+        b.cardTracking = cardTracking;
+        return new MctsSettings(b);
+    }
+
+    @Override
+    public String toString() {
+        return "MctsSettings(parallelism=" + parallelism + ", sharedTree=" + sharedTree
+                + ", offHeapTree=" + offHeapTree + ", timeBudget=" + timeBudget
+                + ", treeReuse=" + treeReuse + ", transpositionTableSize=" + transpositionTableSize
+                + ", endgameCards=" + endgameCards + ", tablebase=" + (tablebase != null)
+                + ", raveEquivalence=" + raveEquivalence + ", earlyStopInterval=" + earlyStopInterval
+                + ", pondering=" + pondering + ", rolloutsPerLeaf=" + rolloutsPerLeaf
+                + ", nodeCap=" + nodeCap + ", cardTracking=" + cardTracking + ")";
+    }
+}
@@ -0,0 +1,824 @@
+package ch.epfl.javass.jass;
+
+import static ch.epfl.javass.Preconditions.checkArgument;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * the search tree of an MctsPlayer, stored as flat columns indexed by node
+ * instead of one object per node, so that growing the tree allocates nothing.
+ *
+ * the columns written once when a node is created (packed score, unplayed cards,
+ * trick, playable cards, next sibling, player) can live off-heap; the ones that
+ * keep changing during the search (visits, score sum, first son, expanded cards)
+ * are atomic arrays, so that several threads can descend the same tree.
+ * The sons of a node are chained from firstChild through nextSibling, the last
+ * created son first, and the number of sons is the size of expandedCards.
+ *
+ * With RAVE (all moves as first), every son also counts the visits in which its player played
+ * its card later on, which are many more than its own visits early in the search, and its value
+ * blends both means.
+ *
+ * With a transposition table, every visit is also counted for the position of its nodes
+ * (identified by their Zobrist key), and a new node whose position other nodes of the tree, or
+ * of the trees of the other threads, already reached gets their mean as a prior: it weighs as
+ * at most MAX_PRIOR_VISITS visits in the node's value, but it is never counted as a visit, and
+ * the node is still evaluated by a rollout.
+ *
+ * A tree that recycles its nodes does not stop growing once it is full: the least visited of
+ * its leaves are pruned (their father keeps their visits and will add them again if it needs
+ * them) and their slots are reused by the next nodes. Only a tree searched by a single thread
+ * can recycle its nodes, so a son can then be stored before its father.
+ */
+final class MctsTree {
+
+    static final int NONE = -1;
+
+    /**
+     * the largest capacity of a tree: its columns take about 270 MB, and their sizes in bytes
+     * stay far from overflowing an int
+     */
+    static final int MAX_CAPACITY = 1 << 22;
+
+    private static final int ROOT = 0;
+    private static final int MAX_TURN_POINTS = 157 + Jass.MATCH_ADDITIONAL_POINTS; //every card and the match
+    private static final int PRUNED_FRACTION = 16; //a pruning frees at least capacity / PRUNED_FRACTION slots, if it can
+    private static final int PRUNING_VISIT_LEVELS = 64; //leaves visited more often than that are pruned alike
+    private static final int MAX_PRIOR_VISITS = 4; //weight of the transposition table's mean in a new node's value
+    private static final int PRIOR_POINTS_BITS = 16; //a prior is its weight, then the points of its mean
+    private static final int NO_PRIOR = 0;
+
+    private final int capacity;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongBuffer scores;
+    private final LongBuffer keys;
+    private final LongBuffer unplayed;
+    private final LongBuffer playable;
+    private final IntBuffer tricks;
+    private final IntBuffer nextSibling;
+    private final ByteBuffer players;
+    private final IntBuffer priors; //NO_PRIOR without a transposition table
+
+    private final AtomicIntegerArray visits;
+    private final AtomicLongArray scoreSums;
+    private final AtomicIntegerArray firstChild;
+    private final AtomicLongArray expandedCards;
+    private final AtomicIntegerArray amafVisits; //null without RAVE
+    private final AtomicLongArray amafSums;
+
+    private final TranspositionTable table; //null when the positions are not shared
+    private final int raveEquivalence; //0 without RAVE
+    private final int[] freeSlots; //stack of the slots of the pruned nodes, null if the tree does not recycle them
+    private final int[] leavesByVisits; //prune's count of the leaves at each number of visits, null with freeSlots
+    private int freeCount;
+    private long prunings;
+    private long prunedNodes;
+
+    private long hand;
+    private PlayerId ownId;
+    private long[] canHold; //the cards every player can hold (see CardLocationTracker), null if nothing is known
+
+    private int followed = NONE; //the node matching the cards played since the last search, if any
+    private int[] forwarding; //new place of every node kept by keepSubtree, allocated on its first call
+    private int[] subtreeStack; //the nodes keepSubtree still has to explore, allocated with forwarding
+
+    /**
+     * @param capacity the maximal number of nodes of the tree, at most MAX_CAPACITY
+     * @param offHeap true if the columns that do not change after a node's creation
+     *                should be stored outside of the java heap
+     * @param table the transposition table shared by the nodes, null for none
+     * @param raveEquivalence the number of visits at which a son's own mean and its RAVE mean
+     *                        weigh the same in its value, 0 for no RAVE
+     * @param recycling true if the least visited leaves should be pruned once the tree is full, which
+     *                  is only possible if a single thread searches the tree
+     * @throws IllegalArgumentException if capacity is not between 1 and MAX_CAPACITY
+     */
+    MctsTree(int capacity, boolean offHeap, TranspositionTable table, int raveEquivalence, boolean recycling) {
+        checkArgument(1 <= capacity && capacity <= MAX_CAPACITY);
+        this.capacity = capacity;
+        this.table = table;
+        this.raveEquivalence = raveEquivalence;
+        freeSlots = recycling ? new int[capacity] : null;
+        leavesByVisits = recycling ? new int[PRUNING_VISIT_LEVELS] : null;
+
+        scores = offHeap ? direct(capacity * Long.BYTES).asLongBuffer() : LongBuffer.allocate(capacity);
+        keys = offHeap ? direct(capacity * Long.BYTES).asLongBuffer() : LongBuffer.allocate(capacity);
+        unplayed = offHeap ? direct(capacity * Long.BYTES).asLongBuffer() : LongBuffer.allocate(capacity);
+        playable = offHeap ? direct(capacity * Long.BYTES).asLongBuffer() : LongBuffer.allocate(capacity);
+        tricks = offHeap ? direct(capacity * Integer.BYTES).asIntBuffer() : IntBuffer.allocate(capacity);
+        nextSibling = offHeap ? direct(capacity * Integer.BYTES).asIntBuffer() : IntBuffer.allocate(capacity);
+        players = offHeap ? direct(capacity) : ByteBuffer.allocate(capacity);
+        priors = table == null ? null : offHeap ? direct(capacity * Integer.BYTES).asIntBuffer() : IntBuffer.allocate(capacity);
+
+        visits = new AtomicIntegerArray(capacity);
+        scoreSums = new AtomicLongArray(capacity);
+        firstChild = new AtomicIntegerArray(capacity);
+        expandedCards = new AtomicLongArray(capacity);
+        amafVisits = raveEquivalence == 0 ? null : new AtomicIntegerArray(capacity);
+        amafSums = raveEquivalence == 0 ? null : new AtomicLongArray(capacity);
+    }
+
+    private static ByteBuffer direct(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * empties the tree and puts the root in it
+     * @param state the state the root represents
+     * @param hand the hand of the player searching
+     * @param ownId the player searching
+     * @param rootPlayer the player considered to have played the root
+     * @param canHold the packed sets of the cards every player can hold, copied, null if nothing is known
+     * @return the root
+     */
+    int reset(TurnState state, CardSet hand, PlayerId ownId, PlayerId rootPlayer, long[] canHold) {
+        this.hand = hand.packed();
+        this.ownId = ownId;
+        this.canHold = canHold == null ? null : canHold.clone();
+        size.set(0);
+        freeCount = 0;
+        followed = ROOT;
+        return newNode(state.packedScore(), state.packedUnplayedCards(), state.packedTrick(), state.zobristKey(), rootPlayer, 0);
+    }
+
+    /**
+     * moves the followed node down to its son that represents pkCard being played,
+     * or stops following if the tree has no such son
+     * @param pkCard the packed card that was just played
+     */
+    void follow(int pkCard) {
+        if(followed == NONE)
+            return;
+
+        int son = firstChild.get(followed);
+        while(son != NONE && card(followed, son) != pkCard)
+            son = nextSibling.get(son);
+        followed = son;
+    }
+
+    /**
+     * turns the followed node into the root if it represents state, and drops every node
+     * that is not under it, keeping their statistics
+     * @param state the state the player has to play to
+     * @param hand the hand of the player searching
+     * @param canHold the packed sets of the cards every player can hold, null if nothing is known:
+     *                the tree is not kept if they changed, its nodes would deal impossible cards
+     * @return true if the tree was kept, false if it has to be reset
+     */
+    boolean reuse(TurnState state, CardSet hand, long[] canHold) {
+        if(followed == NONE
+                || scores.get(followed) != state.packedScore()
+                || unplayed.get(followed) != state.packedUnplayedCards()
+                || tricks.get(followed) != state.packedTrick()
+                || PackedCardSet.intersection(this.hand, state.packedUnplayedCards()) != hand.packed()
+                || !CardLocationTracker.sameOnUnplayed(this.canHold, canHold, state.packedUnplayedCards()))
+            return false;
+
+        keepSubtree(followed);
+        followed = ROOT;
+        return true;
+    }
+
+    /**
+     * compacts the subtree of newRoot at the beginning of the columns, newRoot becoming the root:
+     * the nodes are slid down in increasing order, which never overwrites a node not moved yet
+     * (the old root is never kept, so the nodes stored before newRoot still move down when
+     * newRoot takes its place)
+     */
+    private void keepSubtree(int newRoot) {
+        int oldSize = size.get();
+        if(forwarding == null) {
+            forwarding = new int[capacity];
+            subtreeStack = new int[capacity];
+        }
+
+        //marks the subtree depth first: recycled slots can store a son before its father,
+        //so a single pass in increasing order is not enough
+        Arrays.fill(forwarding, 0, oldSize, NONE);
+        forwarding[newRoot] = ROOT;
+        int stackSize = 0;
+        subtreeStack[stackSize++] = newRoot;
+        while(stackSize != 0) {
+            int node = subtreeStack[--stackSize];
+            for(int son = firstChild.get(node); son != NONE; son = nextSibling.get(son)) {
+                forwarding[son] = ROOT;
+                subtreeStack[stackSize++] = son;
+            }
+        }
+
+        int newSize = 1; //newRoot gets the place of the root
+        for(int node = 0; node < oldSize; ++node) {
+            if(forwarding[node] != NONE)
+                forwarding[node] = node == newRoot ? ROOT : newSize++;
+        }
+
+        for(int node = 0; node < oldSize; ++node) {
+            int to = forwarding[node];
+            if(to == NONE)
+                continue;
+
+            scores.put(to, scores.get(node));
+            keys.put(to, keys.get(node));
+            unplayed.put(to, unplayed.get(node));
+            tricks.put(to, tricks.get(node));
+            playable.put(to, playable.get(node));
+            players.put(to, players.get(node));
+            if(table != null)
+                priors.put(to, priors.get(node));
+            int sibling = node == newRoot ? NONE : nextSibling.get(node); //the root's siblings are dropped
+            nextSibling.put(to, sibling == NONE ? NONE : forwarding[sibling]);
+
+            visits.set(to, visits.get(node));
+            scoreSums.set(to, scoreSums.get(node));
+            int son = firstChild.get(node);
+            firstChild.set(to, son == NONE ? NONE : forwarding[son]);
+            expandedCards.set(to, expandedCards.get(node));
+            if(raveEquivalence != 0) {
+                amafVisits.set(to, amafVisits.get(node));
+                amafSums.set(to, amafSums.get(node));
+            }
+        }
+        size.set(newSize);
+        freeCount = 0;
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    int size() {
+        return size.get() - freeCount;
+    }
+
+    /**
+     * @return true if no node can be added to the tree anymore without pruning others
+     */
+    boolean isFull() {
+        return size.get() == capacity && freeCount == 0;
+    }
+
+    /**
+     * @return the number of times the tree pruned some of its leaves to make room for new nodes
+     */
+    long prunings() {
+        return prunings;
+    }
+
+    /**
+     * @return the number of nodes pruned from the tree, whose slots were reused
+     */
+    long prunedNodes() {
+        return prunedNodes;
+    }
+
+    /**
+     * frees the slots of the least visited leaves of the tree, at least capacity / PRUNED_FRACTION of
+     * them if there are enough leaves: the sons of the root and kept are never pruned
+     * @param kept a node that must stay in the tree
+     * @return true if some slots were freed
+     */
+    private boolean prune(int kept) {
+        int target = Math.max(capacity / PRUNED_FRACTION, 1);
+        int oldSize = size.get();
+
+        //first pass: how many prunable leaves there are at each number of visits
+        int[] leaves = leavesByVisits;
+        Arrays.fill(leaves, 0);
+        for(int node = 1; node < oldSize; ++node) { //the sons of the root are never pruned
+            for(int son = firstChild.get(node); son != NONE; son = nextSibling.get(son)) {
+                if(son != kept && firstChild.get(son) == NONE)
+                    ++leaves[Math.min(visits.get(son), PRUNING_VISIT_LEVELS - 1)];
+            }
+        }
+        int threshold = 0;
+        for(int count = leaves[0]; count < target && threshold < PRUNING_VISIT_LEVELS - 1; count += leaves[++threshold]);
+
+        //second pass: unlinks the leaves visited at most threshold times until the target is reached
+        int pruned = 0;
+        for(int node = 1; node < oldSize && pruned < target; ++node) {
+            int previous = NONE;
+            int son = firstChild.get(node);
+            while(son != NONE) {
+                int next = nextSibling.get(son);
+                if(pruned < target && son != kept && firstChild.get(son) == NONE
+                        && Math.min(visits.get(son), PRUNING_VISIT_LEVELS - 1) <= threshold) {
+                    if(previous == NONE)
+                        firstChild.set(node, next);
+                    else
+                        nextSibling.put(previous, next);
+                    //the father adds the son again the next time it is visited, if it ever is
+                    expandedCards.set(node, expandedCards.get(node) & ~PackedCardSet.singleton(card(node, son)));
+                    freeSlots[freeCount++] = son;
+                    ++pruned;
+                }
+                else
+                    previous = son;
+                son = next;
+            }
+        }
+
+        if(pruned != 0) {
+            ++prunings;
+            prunedNodes += pruned;
+        }
+        return pruned != 0;
+    }
+
+    /**
+     * @param node a node of the tree
+     * @return the packed score of the state node represents
+     */
+    long packedScore(int node) {
+        return scores.get(node);
+    }
+
+    /**
+     * @param node a node of the tree
+     * @return the packed set of the unplayed cards of the state node represents
+     */
+    long packedUnplayedCards(int node) {
+        return unplayed.get(node);
+    }
+
+    /**
+     * @param node a node of the tree
+     * @return the packed trick of the state node represents, never full
+     */
+    int packedTrick(int node) {
+        return tricks.get(node);
+    }
+
+    /**
+     * @param node a node of the tree
+     * @return the packed set of the cards the next player can play from node
+     */
+    long packedPlayableCards(int node) {
+        return playable.get(node);
+    }
+
+    /**
+     * @param node a node of the tree
+     * @return the player that played the card leading to node
+     */
+    PlayerId player(int node) {
+        return PlayerId.ALL.get(players.get(node));
+    }
+
+    /**
+     * @param node a node of the tree
+     * @return the number of times node was visited
+     */
+    int visits(int node) {
+        return visits.get(node);
+    }
+
+    /**
+     * @param node a node of the tree
+     * @return the sum of the points node's player got in node's visits
+     */
+    long scoreSum(int node) {
+        return scoreSums.get(node);
+    }
+
+    /**
+     * @param node a node of the tree
+     * @return the last son added to node, or NONE
+     */
+    int firstChild(int node) {
+        return firstChild.get(node);
+    }
+
+    /**
+     * @param node a node of the tree
+     * @return the son of node's father added just before node, or NONE
+     */
+    int nextSibling(int node) {
+        return nextSibling.get(node);
+    }
+
+    /**
+     * @param node a node of the tree
+     * @return the sum of the visits of the sons of node
+     */
+    int sonVisits(int node) {
+        int sum = 0;
+        for(int son = firstChild.get(node); son != NONE; son = nextSibling.get(son))
+            sum += visits.get(son);
+        return sum;
+    }
+
+    /**
+     * @param node a node of the tree
+     * @return the number of sons node has (or is getting, when the tree is shared)
+     */
+    int childCount(int node) {
+        return Long.bitCount(expandedCards.get(node));
+    }
+
+    /**
+     * @param father a node of the tree
+     * @param son a son of father
+     * @return the packed card played between father and son
+     */
+    int card(int father, int son) {
+        return PackedCardSet.get(PackedCardSet.difference(unplayed.get(father), unplayed.get(son)), 0);
+    }
+
+    /**
+     * @return the root of the tree
+     */
+    int root() {
+        return ROOT;
+    }
+
+    /**
+     * reserves a slot and writes a node in it, without linking it to its father
+     * @return the new node, or NONE if the tree is full
+     */
+    private int newNode(long pkScore, long pkUnplayed, int pkTrick, long key, PlayerId player, int initialVisits) {
+        int node;
+        if(freeCount != 0) //only when a single thread searches the tree
+            node = freeSlots[--freeCount];
+        else {
+            do {
+                node = size.get();
+                if(node == capacity)
+                    return NONE;
+            } while(!size.compareAndSet(node, node + 1));
+        }
+
+        scores.put(node, pkScore);
+        keys.put(node, key);
+        unplayed.put(node, pkUnplayed);
+        tricks.put(node, pkTrick);
+        playable.put(node, playableCards(pkUnplayed, pkTrick));
+        players.put(node, (byte) player.ordinal());
+        nextSibling.put(node, NONE);
+        if(table != null)
+            priors.put(node, NO_PRIOR);
+
+        visits.set(node, initialVisits);
+        scoreSums.set(node, 0);
+        firstChild.set(node, NONE);
+        expandedCards.set(node, PackedCardSet.EMPTY);
+        if(raveEquivalence != 0) {
+            amafVisits.set(node, 0);
+            amafSums.set(node, 0);
+        }
+        return node;
+    }
+
+    /**
+     * @return the cards the next player can play, same rules as in the search:
+     * the player knows his own hand but not how the other cards are split, beyond the cards
+     * each of the others can hold
+     */
+    private long playableCards(long pkUnplayed, int pkTrick) {
+        if(pkTrick == PackedTrick.INVALID)
+            return PackedCardSet.EMPTY; //the turn is over
+
+        PlayerId player = PackedTrick.player(pkTrick, PackedTrick.size(pkTrick));
+        if(player == ownId)
+            return PackedTrick.playableCards(pkTrick, PackedCardSet.intersection(hand, pkUnplayed));
+        return CardLocationTracker.possibleCards(PackedCardSet.difference(pkUnplayed, hand), canHold, player);
+    }
+
+    /**
+     * @return the packed sets of the cards every player can hold given to the last reset, which
+     *         the rollouts from the nodes must follow too, null if nothing is known
+     */
+    long[] canHold() {
+        return canHold;
+    }
+
+    /**
+     * adds to father the son that represents pkCard being played, the trick being collected if it is full
+     * @return the son, or NONE if the tree is full
+     */
+    private int addSon(int father, int pkCard, int initialVisits) {
+        int pkTrick = PackedTrick.withAddedCard(tricks.get(father), pkCard);
+        long pkScore = scores.get(father);
+        long key = Zobrist.withCardPlayed(keys.get(father), tricks.get(father), pkCard);
+        PlayerId sonPlayer = PackedTrick.player(pkTrick, PackedTrick.size(pkTrick) - 1);
+
+        if(PackedTrick.isFull(pkTrick)) { //stored tricks cannot be full
+            long pkNewScore = PackedScore.withAdditionalTrick(pkScore, PackedTrick.winningPlayer(pkTrick).team(), PackedTrick.points(pkTrick));
+            int pkNextTrick = PackedTrick.nextEmpty(pkTrick);
+            key = Zobrist.withTrickCollected(key, pkScore, pkTrick, pkNewScore, pkNextTrick);
+            pkScore = pkNewScore;
+            pkTrick = pkNextTrick;
+        }
+
+        int son = newNode(pkScore, PackedCardSet.remove(unplayed.get(father), pkCard), pkTrick, key, sonPlayer, initialVisits);
+        if(son == NONE)
+            return NONE;
+        if(table != null)
+            inheritTransposition(son);
+
+        int head;
+        do { //the son is complete before it becomes reachable from its father
+            head = firstChild.get(father);
+            nextSibling.put(son, head);
+        } while(!firstChild.compareAndSet(father, head, son));
+        return son;
+    }
+
+    /**
+     * gives a node that is not reachable yet the mean of the visits already counted for its
+     * position as a prior
+     * @param node the new node
+     */
+    private void inheritTransposition(int node) {
+        int entry = table.find(keys.get(node));
+        if(entry == TranspositionTable.NONE)
+            return;
+
+        long tableVisits = table.visits(entry);
+        TeamId team = player(node).team();
+        long meanPoints = PackedScore.gamePoints(scores.get(node), team) + Math.round((double) table.turnPointsSum(entry, team) / tableVisits);
+        priors.put(node, (int) Math.min(tableVisits, MAX_PRIOR_VISITS) << PRIOR_POINTS_BITS | (int) meanPoints);
+    }
+
+    /**
+     * counts a visit ending with pkScore for the positions of the nodes of the path
+     */
+    private void addToTable(int[] path, int length, long pkScore) {
+        int turnPoints1 = PackedScore.turnPoints(pkScore, TeamId.TEAM_1);
+        int turnPoints2 = PackedScore.turnPoints(pkScore, TeamId.TEAM_2);
+        for(int i = 0; i < length; ++i)
+            table.add(keys.get(path[i]), turnPoints1, turnPoints2);
+    }
+
+    /**
+     * adds a son to father if no other thread took the last one first
+     * @return the added son, or NONE if father already has all of its sons or the tree is full
+     */
+    private int addSonConcurrently(int father, int initialVisits) {
+        long expanded;
+        long cardBit;
+        do {
+            expanded = expandedCards.get(father);
+            cardBit = Long.lowestOneBit(playable.get(father) & ~expanded);
+            if(cardBit == 0)
+                return NONE;
+        } while(!expandedCards.compareAndSet(father, expanded, expanded | cardBit));
+        //the card is reserved for this thread only, so no card is ever added twice
+
+        int son = addSon(father, PackedCardSet.get(cardBit, 0), initialVisits);
+        if(son == NONE) { //tree is full, gives the card back
+            do {
+                expanded = expandedCards.get(father);
+            } while(!expandedCards.compareAndSet(father, expanded, expanded & ~cardBit));
+        }
+        return son;
+    }
+
+    /**
+     * @param father a node of the tree
+     * @param c the variable c in the value computation formula
+     * @return the best son of father, the oldest one in case of a tie, or NONE if it has no sons
+     */
+    int selectBestSon(int father, double c) {
+        int best = NONE;
+        double bestValue = 0;
+        int fatherVisits = visits.get(father);
+
+        for(int son = firstChild.get(father); son != NONE; son = nextSibling.get(son)) {
+            double value = sonValue(fatherVisits, c, son);
+            if(best == NONE || value >= bestValue) { //sons are chained from the newest, so >= keeps the oldest
+                best = son;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param fatherVisits the number of visits of son's father
+     * @param c the c variable in the value-computation formula
+     * @param son the son to be evaluated
+     * @return the value of the son
+     */
+    private double sonValue(int fatherVisits, double c, int son) {
+        long sonS = scoreSums.get(son);
+        int sonN = visits.get(son); //read once, other threads may be updating them
+        int prior = prior(son);
+        //the prior only moves the mean, the exploration follows the real visits
+        double mean = (sonS + (double)priorVisits(prior) * priorPoints(prior)) / (sonN + priorVisits(prior));
+        if(raveEquivalence != 0) {
+            int amafN = amafVisits.get(son);
+            if(amafN != 0) { //the weight of the RAVE mean decreases as the son gets its own visits
+                double beta = Math.sqrt(raveEquivalence / (3.0 * sonN + raveEquivalence));
+                mean = (1 - beta) * mean + beta * ((double)amafSums.get(son) / amafN);
+            }
+        }
+        if(fatherVisits == 0) //avoids log(0), the root is never visited itself
+            return mean;
+
+        return mean + c * Math.sqrt((2*Math.log(fatherVisits))/sonN);
+        //computes the value as mentioned in the specifications
+    }
+
+    /**
+     * @return the prior of son, NO_PRIOR if it has none
+     */
+    private int prior(int son) {
+        return table == null ? NO_PRIOR : priors.get(son);
+    }
+
+    /**
+     * @return the number of visits a prior weighs as, 0 for NO_PRIOR
+     */
+    private static int priorVisits(int prior) {
+        return prior >>> PRIOR_POINTS_BITS;
+    }
+
+    /**
+     * @return the mean points of a prior
+     */
+    private static int priorPoints(int prior) {
+        return prior & ((1 << PRIOR_POINTS_BITS) - 1);
+    }
+
+    /**
+     * tells if the son selectBestSon(root, 0) returns cannot change anymore, whatever the results
+     * of the next visits: the points of a visit lie between the game points of the sons' team and
+     * MAX_TURN_POINTS more. As long as the root was never visited and there is no RAVE, the sons
+     * of the root are chosen by their mean only, so that the sons other than the best one only get
+     * visits once it lost its place: their means are then frozen until it does
+     * @param remainingVisits the number of visits the search can still make
+     * @return true if the best son of the root is decided
+     */
+    boolean isRootDecided(int remainingVisits) {
+        if(playable.get(ROOT) != expandedCards.get(ROOT) || firstChild.get(ROOT) == NONE)
+            return false; //the sons not added yet could be better
+
+        int best = selectBestSon(ROOT, 0);
+        int low = PackedScore.gamePoints(scores.get(ROOT), player(best).team());
+        int high = low + MAX_TURN_POINTS;
+        boolean frozen = visits.get(ROOT) == 0 && raveEquivalence == 0;
+
+        double bestLowest = valueBound(best, remainingVisits, low, false);
+        for(int son = firstChild.get(ROOT); son != NONE; son = nextSibling.get(son)) {
+            if(son != best && (frozen ? sonValue(0, 0, son) : valueBound(son, remainingVisits, high, true)) >= bestLowest)
+                return false; //ties are not always broken the same way, they must be ruled out too
+        }
+        return true;
+    }
+
+    /**
+     * @param son a son of the root
+     * @param visitsLeft the number of visits son can still get
+     * @param points the points of every one of these visits, the lowest or the highest possible
+     * @param highest true if points is the highest possible, false if it is the lowest
+     * @return the highest (or lowest) value son can get if visitsLeft visits are worth points,
+     *         knowing that its value lies between its own mean, prior included, and its RAVE mean
+     */
+    private double valueBound(int son, int visitsLeft, int points, boolean highest) {
+        int prior = prior(son); //set when son was created, it does not change during the search
+        double mean = (scoreSums.get(son) + (double)priorVisits(prior) * priorPoints(prior) + (double)visitsLeft * points)
+                / (visits.get(son) + priorVisits(prior) + visitsLeft);
+        if(raveEquivalence == 0)
+            return mean;
+
+        int amafN = amafVisits.get(son);
+        double amafMean = amafN + visitsLeft == 0 ? mean
+                : (double)(amafSums.get(son) + (long)visitsLeft * points) / (amafN + visitsLeft);
+        return highest ? Math.max(mean, amafMean) : Math.min(mean, amafMean);
+    }
+
+    /**
+     * looks for an optimal place under the root to create a node and adds a node there
+     * @param c the variable c used to choose the sons on the way down
+     * @param path filled with the nodes between the root and the created node,
+     *             root excluded and created node included
+     * @return the number of nodes written in path
+     */
+    int addValidDescendant(double c, int[] path) {
+        int length = 0;
+        int currentFather = ROOT;
+
+        while(playable.get(currentFather) != PackedCardSet.EMPTY) { //stops if we reach the bottom
+            long missing = playable.get(currentFather) & ~expandedCards.get(currentFather);
+            if(missing != 0) {
+                //adds a son and stops if the current node doesn't have all of its sons
+                long cardBit = Long.lowestOneBit(missing);
+                int son = addSon(currentFather, PackedCardSet.get(cardBit, 0), 0);
+                if(son == NONE && freeSlots != null && prune(currentFather))
+                    son = addSon(currentFather, PackedCardSet.get(cardBit, 0), 0);
+                if(son != NONE) {
+                    expandedCards.set(currentFather, expandedCards.get(currentFather) | cardBit);
+                    path[length++] = son;
+                }
+                break; //when the tree is full, currentFather gets evaluated instead
+            }
+
+            currentFather = selectBestSon(currentFather, c);
+            path[length++] = currentFather;
+        }
+        return length;
+    }
+
+    /**
+     * same as addValidDescendant, for a tree that other threads are descending at the same time:
+     * every node of the path already counts one more visit (virtual loss), only its score is
+     * left to be added, which pushes the other threads towards its siblings meanwhile
+     * @param c the variable c used to choose the sons on the way down
+     * @param path filled with the nodes between the root and the created node,
+     *             root excluded and created node included
+     * @return the number of nodes written in path
+     */
+    int addValidDescendantConcurrently(double c, int[] path) {
+        int length = 0;
+        int currentFather = ROOT;
+
+        while(playable.get(currentFather) != PackedCardSet.EMPTY) {
+            int son = addSonConcurrently(currentFather, 1); //virtual loss set before the son is reachable
+            if(son != NONE) {
+                path[length++] = son;
+                break;
+            }
+            if(playable.get(currentFather) != expandedCards.get(currentFather))
+                break; //the tree is full, currentFather gets evaluated instead
+
+            son = selectBestSon(currentFather, c);
+            if(son == NONE) { //every son is reserved but none is linked yet, try again
+                Thread.yield();
+                continue;
+            }
+            visits.incrementAndGet(son); //virtual loss
+            currentFather = son;
+            path[length++] = currentFather;
+        }
+        return length;
+    }
+
+    /**
+     * counts a visit worth pkScore for every node of the path
+     * @param path the nodes to update
+     * @param length the number of nodes in path
+     * @param pkScore the packed score the visit ended with
+     * @param played the packed sets of the cards played by each player after the last node
+     *               of the path, completed with the ones of the path, null without RAVE
+     */
+    void backPropagate(int[] path, int length, long pkScore, long[] played) {
+        for(int i = 0; i < length; ++i) {
+            int node = path[i];
+            scoreSums.set(node, scoreSums.get(node) + PackedScore.totalPoints(pkScore, player(node).team()));
+            visits.set(node, visits.get(node) + 1);
+        }
+        if(table != null)
+            addToTable(path, length, pkScore);
+        if(raveEquivalence != 0)
+            addToRave(path, length, pkScore, played);
+    }
+
+    /**
+     * counts a visit worth pkScore for every son of the nodes of the path whose card was
+     * played by its player during the rest of the visit
+     * @param played the packed sets of the cards played by each player after the last node of the path,
+     *               completed with the cards of the path on the way up
+     */
+    private void addToRave(int[] path, int length, long pkScore, long[] played) {
+        for(int i = length - 1; i >= 0; --i) {
+            int father = i == 0 ? ROOT : path[i - 1];
+            long fatherUnplayed = unplayed.get(father);
+            int player = players.get(path[i]);
+            //the card between a father and its son is the only one in the difference of their unplayed cards
+            played[player] |= PackedCardSet.difference(fatherUnplayed, unplayed.get(path[i]));
+
+            int points = PackedScore.totalPoints(pkScore, player(path[i]).team());
+            for(int son = firstChild.get(father); son != NONE; son = nextSibling.get(son)) {
+                if(PackedCardSet.intersection(played[player], PackedCardSet.difference(fatherUnplayed, unplayed.get(son))) != PackedCardSet.EMPTY) {
+                    amafSums.addAndGet(son, points);
+                    amafVisits.incrementAndGet(son);
+                }
+            }
+        }
+    }
+
+    /**
+     * adds the points of pkScore to every node of a path built by addValidDescendantConcurrently,
+     * whose visits were already counted
+     * @param path the nodes to update
+     * @param length the number of nodes in path
+     * @param pkScore the packed score the visit ended with
+     * @param played the packed sets of the cards played by each player after the last node
+     *               of the path, completed with the ones of the path, null without RAVE
+     */
+    void backPropagateConcurrently(int[] path, int length, long pkScore, long[] played) {
+        for(int i = 0; i < length; ++i)
+            scoreSums.addAndGet(path[i], PackedScore.totalPoints(pkScore, player(path[i]).team()));
+        if(table != null)
+            addToTable(path, length, pkScore);
+        if(raveEquivalence != 0)
+            addToRave(path, length, pkScore, played);
+    }
+}
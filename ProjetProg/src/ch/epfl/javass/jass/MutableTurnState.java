@@ -0,0 +1,193 @@
+package ch.epfl.javass.jass;
+
+import ch.epfl.javass.jass.Card.Color;
+
+/**
+ * a state of a turn that changes in place, for the searches that walk down and back up the
+ * tree of a turn (EndgameSolver): play and collect push the components they change on a small
+ * stack of primitives, undo pops them back, and none of them allocates anything.
+ * Behaves like TurnState otherwise, its Zobrist key included.
+ */
+public final class MutableTurnState {
+
+    private static final int MAX_DEPTH = Jass.HAND_SIZE * PlayerId.COUNT + Jass.TRICKS_PER_TURN; //every card and every trick
+
+    private long pkScore;
+    private long pkUnplayedCards;
+    private int pkTrick;
+    private long zobristKey;
+
+    // one entry per play or collect not undone yet
+    private final long[] scores = new long[MAX_DEPTH];
+    private final long[] unplayedCards = new long[MAX_DEPTH];
+    private final int[] tricks = new int[MAX_DEPTH];
+    private final long[] zobristKeys = new long[MAX_DEPTH];
+    private int depth;
+
+    /**
+     * @param state the state to start from
+     */
+    public MutableTurnState(TurnState state) {
+        set(state);
+    }
+
+    /**
+     * @param trump the trump color of the turn
+     * @param score the score at which the turn begins
+     * @param firstPlayer the first player to play
+     * @return the state at the beginning of that turn
+     */
+    public static MutableTurnState initial(Color trump, Score score, PlayerId firstPlayer) {
+        return new MutableTurnState(TurnState.initial(trump, score, firstPlayer));
+    }
+
+    /**
+     * replaces the state by another one, and forgets every play and collect that was not undone
+     * @param state the new state
+     */
+    public void set(TurnState state) {
+        pkScore = state.packedScore();
+        pkUnplayedCards = state.packedUnplayedCards();
+        pkTrick = state.packedTrick();
+        zobristKey = state.zobristKey();
+        depth = 0;
+    }
+
+    /**
+     * replaces the state by the one of the given packed components (see set(TurnState)),
+     * without creating the TurnState
+     * @param pkScore the packed score of the new state
+     * @param pkUnplayedCards the packed set of its unplayed cards
+     * @param pkTrick its packed trick
+     */
+    void set(long pkScore, long pkUnplayedCards, int pkTrick) {
+        this.pkScore = pkScore;
+        this.pkUnplayedCards = pkUnplayedCards;
+        this.pkTrick = pkTrick;
+        zobristKey = Zobrist.key(pkScore, pkUnplayedCards, pkTrick);
+        depth = 0;
+    }
+
+    /**
+     * @return the immutable version of the current state
+     */
+    public TurnState toTurnState() {
+        return TurnState.ofPackedComponents(pkScore, pkUnplayedCards, pkTrick);
+    }
+
+    /**
+     * @return the current packed score
+     */
+    public long packedScore() {
+        return pkScore;
+    }
+
+    /**
+     * @return the packed card set of the cards not played yet
+     */
+    public long packedUnplayedCards() {
+        return pkUnplayedCards;
+    }
+
+    /**
+     * @return the current packed trick
+     */
+    public int packedTrick() {
+        return pkTrick;
+    }
+
+    /**
+     * @return the Zobrist key of the current state (see TurnState.zobristKey)
+     */
+    public long zobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @return the number of plays and collects that can be undone
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * @return true iff the turn is over, i.e. all the tricks were collected
+     */
+    public boolean isTerminal() {
+        return pkTrick == PackedTrick.INVALID;
+    }
+
+    /**
+     * @return the player that has to play next
+     * @throws IllegalStateException if the trick is currently full
+     */
+    public PlayerId nextPlayer() {
+        if(PackedTrick.isFull(pkTrick)) throw new IllegalStateException();
+        return PackedTrick.player(pkTrick, PackedTrick.size(pkTrick));
+    }
+
+    /**
+     * plays a card in the current trick
+     * @param pkCard the packed card played
+     * @throws IllegalStateException if the trick is currently full
+     */
+    public void play(int pkCard) {
+        if(PackedTrick.isFull(pkTrick)) throw new IllegalStateException();
+        push();
+        zobristKey = Zobrist.withCardPlayed(zobristKey, pkTrick, pkCard);
+        pkUnplayedCards = PackedCardSet.remove(pkUnplayedCards, pkCard);
+        pkTrick = PackedTrick.withAddedCard(pkTrick, pkCard);
+    }
+
+    /**
+     * collects the current trick, which is full, and starts the next one
+     * @throws IllegalStateException if the trick is not full
+     */
+    public void collect() {
+        if(!PackedTrick.isFull(pkTrick)) throw new IllegalStateException();
+        push();
+        long newScore = PackedScore.withAdditionalTrick(pkScore, PackedTrick.winningPlayer(pkTrick).team(), PackedTrick.points(pkTrick));
+        int nextTrick = PackedTrick.nextEmpty(pkTrick);
+        zobristKey = Zobrist.withTrickCollected(zobristKey, pkScore, pkTrick, newScore, nextTrick);
+        pkScore = newScore;
+        pkTrick = nextTrick;
+    }
+
+    /**
+     * plays a card, then collects the trick if it is full
+     * @param pkCard the packed card played
+     * @return the number of undo calls that take the state back to where it was (1 or 2)
+     * @throws IllegalStateException if the trick is currently full
+     */
+    public int playAndCollect(int pkCard) {
+        play(pkCard);
+        if(!PackedTrick.isFull(pkTrick))
+            return 1;
+        collect();
+        return 2;
+    }
+
+    /**
+     * takes the state back to where it was before the last play or collect not undone yet
+     * @throws IllegalStateException if there is nothing to undo
+     */
+    public void undo() {
+        if(depth == 0) throw new IllegalStateException();
+        --depth;
+        pkScore = scores[depth];
+        pkUnplayedCards = unplayedCards[depth];
+        pkTrick = tricks[depth];
+        zobristKey = zobristKeys[depth];
+    }
+
+    /**
+     * saves the current components on the stack
+     */
+    private void push() {
+        scores[depth] = pkScore;
+        unplayedCards[depth] = pkUnplayedCards;
+        tricks[depth] = pkTrick;
+        zobristKeys[depth] = zobristKey;
+        ++depth;
+    }
+}
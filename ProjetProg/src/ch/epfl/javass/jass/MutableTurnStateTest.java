@@ -0,0 +1,74 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+/**
+ * compares MutableTurnState with TurnState on random turns, and throws an AssertionError on the
+ * first difference: every card is played and every trick collected on both, then everything is
+ * undone one step after the other, the mutable state having to go back through the same states.
+ * The components and the Zobrist key are compared at each step.
+ *
+ * Run with the number of turns as its argument, 20000 by default.
+ */
+class MutableTurnStateTest {
+
+    private static final int DEFAULT_TURNS = 20000;
+    private static final int SEED = 2019;
+    private static final int MAX_STEPS = Jass.HAND_SIZE * PlayerId.COUNT + Jass.TRICKS_PER_TURN;
+
+    public static void main(String[] arguments) {
+        int turns = arguments.length == 0 ? DEFAULT_TURNS : Integer.parseInt(arguments[0]);
+        SplittableRandom rng = new SplittableRandom(SEED);
+        TurnState[] states = new TurnState[MAX_STEPS + 1]; //the states the mutable one went through
+        long comparisons = 0;
+
+        for(int t = 0; t < turns; ++t) {
+            TurnState state = TurnState.initial(Card.Color.ALL.get(rng.nextInt(Card.Color.COUNT)),
+                    Score.INITIAL, PlayerId.ALL.get(rng.nextInt(PlayerId.COUNT)));
+            MutableTurnState mutable = new MutableTurnState(state);
+            if(t % 2 == 1) //the packed version of set, on a state already used
+                mutable.set(state.packedScore(), state.packedUnplayedCards(), state.packedTrick());
+
+            int steps = 0;
+            states[steps] = state;
+            while(!state.isTerminal()) {
+                long unplayed = state.packedUnplayedCards();
+                int pkCard = PackedCardSet.get(unplayed, rng.nextInt(PackedCardSet.size(unplayed)));
+                check(mutable.nextPlayer() == state.nextPlayer(), state, "nextPlayer");
+                state = state.withNewCardPlayed(Card.ofPacked(pkCard));
+                mutable.play(pkCard);
+                compare(mutable, state, ++steps);
+                states[steps] = state;
+                if(state.trick().isFull()) {
+                    state = state.withTrickCollected();
+                    mutable.collect();
+                    compare(mutable, state, ++steps);
+                    states[steps] = state;
+                }
+                comparisons += 2;
+            }
+            check(mutable.isTerminal(), state, "isTerminal");
+
+            while(steps != 0) {
+                mutable.undo();
+                compare(mutable, states[--steps], steps);
+                ++comparisons;
+            }
+            check(mutable.toTurnState().zobristKey() == states[0].zobristKey(), states[0], "toTurnState");
+        }
+        System.out.println(comparisons + " comparisons, no difference");
+    }
+
+    private static void compare(MutableTurnState mutable, TurnState state, int depth) {
+        check(mutable.packedScore() == state.packedScore(), state, "packedScore");
+        check(mutable.packedUnplayedCards() == state.packedUnplayedCards(), state, "packedUnplayedCards");
+        check(mutable.packedTrick() == state.packedTrick(), state, "packedTrick");
+        check(mutable.zobristKey() == state.zobristKey(), state, "zobristKey");
+        check(mutable.depth() == depth, state, "depth");
+    }
+
+    private static void check(boolean same, TurnState state, String what) {
+        if(!same)
+            throw new AssertionError(what + " differs on " + state.trick() + " with the score " + state.score());
+    }
+}
@@ -4,7 +4,7 @@ import ch.epfl.javass.bits.Bits32;
 import ch.epfl.javass.jass.Card.Color;
 import ch.epfl.javass.jass.Card.Rank;
 
-import static ch.epfl.javass.bits.Bits32.extract;
+import static ch.epfl.javass.bits.Bits32.extractUnchecked;
 
 /**
  * @author Mathis Randl
@@ -22,13 +22,37 @@ public final class PackedCard {
     private static final int COLOR_INDEX = 4;
     private static final int COLOR_SIZE = 2;
 
+    private static final int[] VALUE_NOT_TRUMP = new int[]{0, 0, 0, 0, 10, 2, 3, 4, 11};
+    private static final int[] VALUE_TRUMP = new int[]{0, 0, 0, 14, 10, 20, 3, 4, 11};
+
+    /**
+     * @return the array that gives, at index (trump << 6) | pkCard, the points
+     *         pkCard is worth when trump is the index of the trump color (0 for
+     *         the 6-bit values that are not valid cards, INVALID included)
+     */
+    private static int[] generatePointsArray() {
+        int[] tmp = new int[Color.COUNT << (RANK_SIZE + COLOR_SIZE)];
+        for (int trump = 0; trump < Color.COUNT; ++trump) {
+            for (int pkCard = 0; pkCard <= INVALID; ++pkCard) {
+                if (isValid(pkCard))
+                    tmp[trump << (RANK_SIZE + COLOR_SIZE) | pkCard] =
+                            extractUnchecked(pkCard, COLOR_INDEX, COLOR_SIZE) == trump
+                                    ? VALUE_TRUMP[extractUnchecked(pkCard, RANK_INDEX, RANK_SIZE)]
+                                    : VALUE_NOT_TRUMP[extractUnchecked(pkCard, RANK_INDEX, RANK_SIZE)];
+            }
+        }
+        return tmp;
+    }
+
+    private static final int[] POINTS = generatePointsArray();
+
     /**
      * @param pkCard
      *            a packed card
      * @return true if pkCard is a valid card, false if it is not
      */
     public static boolean isValid(int pkCard) {
-        return (extract(pkCard, RANK_INDEX, RANK_SIZE) <= 0b1000) &&
+        return (extractUnchecked(pkCard, RANK_INDEX, RANK_SIZE) <= 0b1000) &&
                 (pkCard >>> (RANK_SIZE + COLOR_SIZE) == 0);
     }
 
@@ -50,7 +74,7 @@ public final class PackedCard {
      * @return the color of pkCard
      */
     public static Color color(int pkCard) {
-        return Color.ALL.get(extract(pkCard, COLOR_INDEX, COLOR_SIZE));
+        return Color.ALL.get(extractUnchecked(pkCard, COLOR_INDEX, COLOR_SIZE));
     }
 
     /**
@@ -59,7 +83,7 @@ public final class PackedCard {
      * @return the rank of pkCard
      */
     public static Rank rank(int pkCard) {
-        return Rank.ALL.get(extract(pkCard, RANK_INDEX, RANK_SIZE));
+        return Rank.ALL.get(extractUnchecked(pkCard, RANK_INDEX, RANK_SIZE));
     }
 
     /**
@@ -94,12 +118,21 @@ public final class PackedCard {
      * @return the points that card is worth
      */
     public static int points(Color trump, int pack) {
-        int[] valueNotTrump = new int[]{0, 0, 0, 0, 10, 2, 3, 4, 11};
-        int[] valueTrump = new int[]{0, 0, 0, 14, 10, 20, 3, 4, 11};
+        return points(trump.ordinal(), pack);
+    }
 
-        return color(pack) == trump
-                ? valueTrump[extract(pack, RANK_INDEX, RANK_SIZE)]
-                : valueNotTrump[extract(pack, RANK_INDEX, RANK_SIZE)];
+    /**
+     * same as points(Color, int), for the index of the trump color as it is
+     * stored in a packed trick
+     *
+     * @param trump
+     *            the index of the trump color, from 0 to 3
+     * @param pack
+     *            a packed card, or INVALID (worth 0 points)
+     * @return the points that card is worth
+     */
+    static int points(int trump, int pack) {
+        return POINTS[trump << (RANK_SIZE + COLOR_SIZE) | pack];
     }
 
     public static String toString(int pkCard) {
@@ -2,11 +2,9 @@ package ch.epfl.javass.jass;
 
 import ch.epfl.javass.bits.Bits32;
 import ch.epfl.javass.bits.Bits64;
-import ch.epfl.javass.jass.Card.Color;
-import ch.epfl.javass.jass.Card.Rank;
 
 import java.util.StringJoiner;
-import java.util.stream.IntStream;
+import java.util.function.IntConsumer;
 
 /**
  * @author Mathis Randl
@@ -66,6 +64,26 @@ public final class PackedCardSet {
     // We can now store the result
     private final static long[][] trumpAboveArray = generateTrumpAboveArray();
 
+    /**
+     * @return the array that gives, at index (b << 3) + k, the position of the
+     *         k-th "1" bit of the byte b (8 if b has no k-th "1" bit)
+     */
+    private final static byte[] generateSelectInByteArray() {
+        byte[] tmp = new byte[256 * Byte.SIZE];
+        for (int b = 0; b < 256; ++b) {
+            int k = 0;
+            for (int position = 0; position < Byte.SIZE; ++position) {
+                if ((b & (1 << position)) != 0)
+                    tmp[(b << 3) + k++] = (byte) position;
+            }
+            for (; k < Byte.SIZE; ++k)
+                tmp[(b << 3) + k] = Byte.SIZE;
+        }
+        return tmp;
+    }
+
+    private final static byte[] selectInByteArray = generateSelectInByteArray();
+
     // Uses a hardcode on purpose because a generateSubsetOfColorArray()
     // method is as long in number of lines, but less clear
     private final static long[] subsetOfColorArray = new long[] {
@@ -93,8 +111,8 @@ public final class PackedCardSet {
      *         pkCard, knowing its color is trump
      */
     public static long trumpAbove(int pkCard) {
-        return trumpAboveArray[Bits32.extract(pkCard, COLOR_INDEX, COLOR_SIZE)]
-                [Bits32.extract(pkCard, RANK_INDEX, RANK_SIZE)];
+        return trumpAboveArray[Bits32.extractUnchecked(pkCard, COLOR_INDEX, COLOR_SIZE)]
+                [Bits32.extractUnchecked(pkCard, RANK_INDEX, RANK_SIZE)];
     }
 
     /**
@@ -103,8 +121,8 @@ public final class PackedCardSet {
      * @return the packed set of cards that only contains pkCard
      */
     public static long singleton(int pkCard) {
-        return Bits64.mask((Bits32.extract(pkCard, RANK_INDEX, RANK_SIZE) +
-                            Bits32.extract(pkCard, COLOR_INDEX, COLOR_SIZE) * 16), 1);
+        return Bits64.maskUnchecked((Bits32.extractUnchecked(pkCard, RANK_INDEX, RANK_SIZE) +
+                            Bits32.extractUnchecked(pkCard, COLOR_INDEX, COLOR_SIZE) * 16), 1);
         //the color tells in which quarter of the int the 1 must be placed (hence the *16), the rank in which position in that quarter
     }
 
@@ -134,19 +152,42 @@ public final class PackedCardSet {
      * @return the packed card in pkCardSet of the index-th "1" bit
      */
     public static int get(long pkCardSet, int index) {
+        // number of cards of each color, one per 16-bit lane (popcount of the
+        // bytes, then of the lanes)
+        long counts = pkCardSet - ((pkCardSet >>> 1) & 0x5555_5555_5555_5555L);
+        counts = (counts & 0x3333_3333_3333_3333L) + ((counts >>> 2) & 0x3333_3333_3333_3333L);
+        counts = (counts + (counts >>> 4)) & 0x0F0F_0F0F_0F0F_0F0FL;
+        counts = (counts + (counts >>> 8)) & 0x00FF_00FF_00FF_00FFL;
+        // the lane of each color now holds the number of cards of that color
+        // and of the ones before it (at most 36, no lane overflows)
+        long below = counts * 0x0001_0001_0001_0001L;
 
-        int finalCardActualIndex = 0;
-        for (int i = 0; i <= index; ++i) {
+        int color = ((below & 0xFFFF) <= index ? 1 : 0)
+                + (((below >>> 16) & 0xFFFF) <= index ? 1 : 0)
+                + (((below >>> 32) & 0xFFFF) <= index ? 1 : 0);
+        int k = color == 0 ? index : index - (int) ((below >>> (16 * color - 16)) & 0xFFFF);
 
-            finalCardActualIndex += Long.numberOfTrailingZeros(pkCardSet) + 1;
-            pkCardSet >>= Long.numberOfTrailingZeros(pkCardSet) + 1;
-            // removes all trailing 0's and one 1, index times,
-            // and counts how much was deleted
-        }
-        return PackedCard.pack(Color.ALL.get(finalCardActualIndex / 16),
-                Rank.ALL.get((finalCardActualIndex - 1) % 16));
-        // returns the packed card with color index ranging from 0 to 3,
-        // and rank ranging from 0 to 15 but only uses from 0 to 8
+        // the cards of a color span two bytes of its lane
+        int ranks = (int) (pkCardSet >>> (16 * color)) & 0xFFFF;
+        int lowCount = Integer.bitCount(ranks & 0xFF);
+        int rank = k < lowCount ? selectInByteArray[((ranks & 0xFF) << 3) + k]
+                : Byte.SIZE + selectInByteArray[((ranks >>> 8) << 3) + k - lowCount];
+        return color * 16 + rank;
+        // a packed card is also the index of its bit in a packed card set
+    }
+
+    /**
+     * calls action with every packed card of pkCardSet, in increasing order,
+     * without creating any object
+     *
+     * @param pkCardSet
+     *            a packed card set
+     * @param action
+     *            the action to perform on each packed card
+     */
+    public static void forEach(long pkCardSet, IntConsumer action) {
+        for (long cards = pkCardSet; cards != 0; cards &= cards - 1)
+            action.accept(Long.numberOfTrailingZeros(cards));
     }
 
     /**
@@ -237,9 +278,112 @@ public final class PackedCardSet {
         // and thus avoids us runtime computations
     }
 
+    private static final int NUMBER_OF_CARDS = NUMBER_OF_COLORS * NUMBER_OF_RANKS;
+
+    /**
+     * @return the array that gives, at index [n][k], the number of subsets of
+     *         k elements of a set of n elements (0 if k > n)
+     */
+    private final static long[][] generateBinomialArray() {
+        long[][] tmp = new long[NUMBER_OF_CARDS + 1][NUMBER_OF_CARDS + 1];
+        for (int n = 0; n <= NUMBER_OF_CARDS; ++n) {
+            tmp[n][0] = 1;
+            for (int k = 1; k <= n; ++k)
+                tmp[n][k] = tmp[n - 1][k - 1] + tmp[n - 1][k];
+        }
+        return tmp;
+    }
+
+    private final static long[][] binomialArray = generateBinomialArray();
+
+    /**
+     * @param n
+     *            a number of cards, from 0 to 36
+     * @param k
+     *            a number of cards, from 0 to 36
+     * @return the number of packed card sets of k cards taken among n cards,
+     *         i.e. the number of values combinationIndex takes on them
+     */
+    public static long subsetCount(int n, int k) {
+        return binomialArray[n][k];
+    }
+
+    /**
+     * @param pkCardSet
+     *            a packed card set
+     * @return the index of pkCardSet among all the packed card sets of the
+     *         same size, from 0 to subsetCount(36, size(pkCardSet)) excluded
+     *         (see the other combinationIndex)
+     */
+    public static long combinationIndex(long pkCardSet) {
+        return combinationIndex(pkCardSet, ALL_CARDS);
+    }
+
+    /**
+     * ranks the subsets of k cards of pkUniverse in the combinatorial number
+     * system: with its cards at positions c1 < c2 < ... < ck in pkUniverse,
+     * a subset gets the index C(c1, 1) + C(c2, 2) + ... + C(ck, k). The
+     * indices are dense, so that a table of the subsets can be a flat array
+     *
+     * @param pkCardSet
+     *            a packed card set, subset of pkUniverse
+     * @param pkUniverse
+     *            a packed card set, for example the unplayed cards
+     * @return the index of pkCardSet among the subsets of pkUniverse of the
+     *         same size, from 0 to subsetCount(size(pkUniverse),
+     *         size(pkCardSet)) excluded
+     */
+    public static long combinationIndex(long pkCardSet, long pkUniverse) {
+        long index = 0;
+        int k = 1;
+        for (long cards = pkCardSet; cards != 0; cards &= cards - 1, ++k) {
+            int position = Long.bitCount(pkUniverse & (Long.lowestOneBit(cards) - 1));
+            index += binomialArray[position][k];
+        }
+        return index;
+    }
+
+    /**
+     * @param index
+     *            an index, from 0 to subsetCount(36, size) excluded
+     * @param size
+     *            a number of cards, from 0 to 36
+     * @return the packed card set of size cards of that index (see
+     *         combinationIndex)
+     */
+    public static long ofCombinationIndex(long index, int size) {
+        return ofCombinationIndex(index, size, ALL_CARDS);
+    }
+
+    /**
+     * @param index
+     *            an index, from 0 to subsetCount(size(pkUniverse), size)
+     *            excluded
+     * @param size
+     *            a number of cards, from 0 to size(pkUniverse)
+     * @param pkUniverse
+     *            a packed card set
+     * @return the subset of size cards of pkUniverse of that index (see
+     *         combinationIndex)
+     */
+    public static long ofCombinationIndex(long index, int size, long pkUniverse) {
+        long pkCardSet = EMPTY;
+        int position = size(pkUniverse);
+        // the largest card first: its position is the largest one whose
+        // binomial fits in what is left of the index
+        for (int k = size; k >= 1; --k) {
+            do
+                --position;
+            while (binomialArray[position][k] > index);
+            index -= binomialArray[position][k];
+            pkCardSet = add(pkCardSet, get(pkUniverse, position));
+        }
+        return pkCardSet;
+    }
+
     public static String toString(long pkCardSet) {
         StringJoiner j = new StringJoiner(",", "{", "}");
-        IntStream.range(0, size(pkCardSet)).mapToObj(i -> PackedCard.toString(get(pkCardSet, i))).forEachOrdered(j::add);
+        forEach(pkCardSet, pkCard -> j.add(PackedCard.toString(pkCard)));
         return j.toString();
     }
 }
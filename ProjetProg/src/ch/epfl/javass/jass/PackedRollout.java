@@ -0,0 +1,94 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+/**
+ * random end of a turn, played on the packed representations only so that
+ * no object is created on the way (the rollouts of MctsPlayer)
+ */
+final class PackedRollout {
+    private PackedRollout() {}
+
+    /**
+     * plays the turn randomly until its end: the player searching plays from his hand,
+     * every other player from the cards nobody knows the place of that he can hold
+     * @param pkScore the packed score of the state to start from
+     * @param pkUnplayedCards the packed set of the cards not played yet
+     * @param pkTrick the packed trick of the state to start from, not full
+     * @param pkHand the packed hand of the player searching
+     * @param ownId the player searching
+     * @param canHold the packed sets of the cards every player can hold (see
+     *                CardLocationTracker.possibleCards), null if nothing is known about them
+     * @param rng the random generator choosing the cards, drawn once per card played
+     * @param tablebase the outcomes of the last tricks, which are then played perfectly
+     *                  instead of randomly, null to play them randomly too
+     * @param played filled with the packed sets of the cards played by each player (indexed by
+     *               PlayerId.ordinal) if it is not null, the cards of the last trick excepted when
+     *               tablebase looks it up
+     * @return the packed score at the end of the turn
+     */
+    static long play(long pkScore, long pkUnplayedCards, int pkTrick, long pkHand,
+                     PlayerId ownId, long[] canHold, SplittableRandom rng, EndgameTablebase tablebase, long[] played) {
+        long ownHand = PackedCardSet.intersection(pkHand, pkUnplayedCards);
+        long others = PackedCardSet.difference(pkUnplayedCards, pkHand);
+
+        while(pkTrick != PackedTrick.INVALID) { //the turn is over once the last trick is collected
+            if(tablebase != null && PackedTrick.isLast(pkTrick) && PackedTrick.isEmpty(pkTrick))
+                return tablebase.withLastTrickPlayed(pkScore, PackedCardSet.union(ownHand, others), pkTrick, ownHand, ownId);
+
+            PlayerId player = PackedTrick.player(pkTrick, PackedTrick.size(pkTrick));
+            boolean ownTurn = player == ownId;
+
+            long playable = PackedTrick.playableCards(pkTrick,
+                    ownTurn ? ownHand : CardLocationTracker.possibleCards(others, canHold, player));
+            int pkCard = PackedCardSet.get(playable, rng.nextInt(PackedCardSet.size(playable)));
+
+            if(played != null)
+                played[player.ordinal()] = PackedCardSet.add(played[player.ordinal()], pkCard);
+            if(ownTurn)
+                ownHand = PackedCardSet.remove(ownHand, pkCard);
+            else
+                others = PackedCardSet.remove(others, pkCard);
+
+            pkTrick = PackedTrick.withAddedCard(pkTrick, pkCard);
+            if(PackedTrick.isFull(pkTrick)) { //same as TurnState.withTrickCollected
+                pkScore = PackedScore.withAdditionalTrick(pkScore,
+                        PackedTrick.winningPlayer(pkTrick).team(), PackedTrick.points(pkTrick));
+                pkTrick = PackedTrick.nextEmpty(pkTrick);
+            }
+        }
+        return pkScore;
+    }
+
+    /**
+     * plays the turn randomly until its end several times from the same state (see play), one
+     * ordinary rollout after the other, to reduce the variance of the score of a node
+     * @param rollouts the number of rollouts, at least 1
+     * @param played filled with the packed sets of the cards played by each player in the first
+     *               rollout only if it is not null (see play)
+     * @return the packed score at the end of the turn, with the turn points of both teams averaged
+     *         over the rollouts (the tricks are the ones of pkScore if there are several)
+     * (the other arguments are the ones of play)
+     */
+    static long playAveraged(int rollouts, long pkScore, long pkUnplayedCards, int pkTrick, long pkHand,
+                             PlayerId ownId, long[] canHold, SplittableRandom rng, EndgameTablebase tablebase, long[] played) {
+        long first = play(pkScore, pkUnplayedCards, pkTrick, pkHand, ownId, canHold, rng, tablebase, played);
+        if(rollouts == 1)
+            return first;
+
+        int turnPoints1 = PackedScore.turnPoints(first, TeamId.TEAM_1);
+        int turnPoints2 = PackedScore.turnPoints(first, TeamId.TEAM_2);
+        for(int r = 1; r < rollouts; ++r) {
+            long score = play(pkScore, pkUnplayedCards, pkTrick, pkHand, ownId, canHold, rng, tablebase, null);
+            turnPoints1 += PackedScore.turnPoints(score, TeamId.TEAM_1);
+            turnPoints2 += PackedScore.turnPoints(score, TeamId.TEAM_2);
+        }
+        return PackedScore.pack(
+                PackedScore.turnTricks(pkScore, TeamId.TEAM_1),
+                Math.round((float)turnPoints1 / rollouts),
+                PackedScore.gamePoints(pkScore, TeamId.TEAM_1),
+                PackedScore.turnTricks(pkScore, TeamId.TEAM_2),
+                Math.round((float)turnPoints2 / rollouts),
+                PackedScore.gamePoints(pkScore, TeamId.TEAM_2));
+    }
+}
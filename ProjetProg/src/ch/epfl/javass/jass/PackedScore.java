@@ -29,17 +29,17 @@ public final class PackedScore {
     public static boolean isValid(long pkScore) {
         boolean assertion = true;
 
-        assertion = assertion && (extract(pkScore, WON_TRICKS_POS, WON_TRICKS_SIZE) <= 9)
-                && (extract(pkScore, TURN_POINTS_POS, TURN_POINTS_SIZE) <= 257)
-                && (extract(pkScore, GAME_POINTS_POS, GAME_POINTS_SIZE) <= 2000)
-                && (extract(pkScore, ZERO_POS, ZERO_SIZE) == 0);
+        assertion = assertion && (extractUnchecked(pkScore, WON_TRICKS_POS, WON_TRICKS_SIZE) <= 9)
+                && (extractUnchecked(pkScore, TURN_POINTS_POS, TURN_POINTS_SIZE) <= 257)
+                && (extractUnchecked(pkScore, GAME_POINTS_POS, GAME_POINTS_SIZE) <= 2000)
+                && (extractUnchecked(pkScore, ZERO_POS, ZERO_SIZE) == 0);
 
         pkScore >>>= 32;
 
-        assertion = assertion && (extract(pkScore, WON_TRICKS_POS, WON_TRICKS_SIZE) <= 9)
-                && (extract(pkScore, TURN_POINTS_POS, TURN_POINTS_SIZE) <= 257)
-                && (extract(pkScore, GAME_POINTS_POS, GAME_POINTS_SIZE) <= 2000)
-                && (extract(pkScore, ZERO_POS, ZERO_SIZE) == 0);
+        assertion = assertion && (extractUnchecked(pkScore, WON_TRICKS_POS, WON_TRICKS_SIZE) <= 9)
+                && (extractUnchecked(pkScore, TURN_POINTS_POS, TURN_POINTS_SIZE) <= 257)
+                && (extractUnchecked(pkScore, GAME_POINTS_POS, GAME_POINTS_SIZE) <= 2000)
+                && (extractUnchecked(pkScore, ZERO_POS, ZERO_SIZE) == 0);
 
         return assertion;
     }
@@ -83,7 +83,7 @@ public final class PackedScore {
      * @return the number of tricks won by that team, according to that score
      */
     public static int turnTricks(long pkScore, TeamId t) {
-        return (int) extract(pkScore, (t == TeamId.TEAM_1 ? WON_TRICKS_POS : 32 + WON_TRICKS_POS), WON_TRICKS_SIZE);
+        return (int) extractUnchecked(pkScore, (t == TeamId.TEAM_1 ? WON_TRICKS_POS : 32 + WON_TRICKS_POS), WON_TRICKS_SIZE);
         //extracts the searched number at position 0 or 32, depending on t
     }
 
@@ -96,7 +96,7 @@ public final class PackedScore {
      *         according to that score
      */
     public static int turnPoints(long pkScore, TeamId t) {
-        return (int) extract(pkScore, t == TeamId.TEAM_1 ? TURN_POINTS_POS : (32 + TURN_POINTS_POS), TURN_POINTS_SIZE);
+        return (int) extractUnchecked(pkScore, t == TeamId.TEAM_1 ? TURN_POINTS_POS : (32 + TURN_POINTS_POS), TURN_POINTS_SIZE);
     }
 
     /**
@@ -108,7 +108,7 @@ public final class PackedScore {
      *         according to that score
      */
     public static int gamePoints(long pkScore, TeamId t) {
-        return (int) extract(pkScore, t == TeamId.TEAM_1 ? GAME_POINTS_POS : 32 + GAME_POINTS_POS, GAME_POINTS_SIZE);
+        return (int) extractUnchecked(pkScore, t == TeamId.TEAM_1 ? GAME_POINTS_POS : 32 + GAME_POINTS_POS, GAME_POINTS_SIZE);
     }
 
     /**
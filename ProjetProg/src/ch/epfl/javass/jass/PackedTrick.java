@@ -1,13 +1,7 @@
 package ch.epfl.javass.jass;
 
-import static ch.epfl.javass.bits.Bits32.extract;
-import static ch.epfl.javass.jass.PackedCardSet.ALL_CARDS;
-import static ch.epfl.javass.jass.PackedCardSet.singleton;
-import static ch.epfl.javass.jass.PackedCardSet.subsetOfColor;
-
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import static ch.epfl.javass.bits.Bits32.extractUnchecked;
+
 import java.util.StringJoiner;
 import java.util.stream.IntStream;
 
@@ -39,18 +33,101 @@ public final class PackedTrick {
     private final static int TRUMP_POS = 30;
     private final static int TRUMP_SIZE = 2;
 
+    // a packed card set holds the ranks of each color in a 16-bit lane,
+    // and a packed card is the index of its bit in that set
+    private final static int COLOR_LANE_SIZE = 16;
+    private final static int CARD_COLOR_INDEX = 4;
+    private final static int CARD_RANK_MASK = 0xF;
+    private final static long ALL_RANKS = 0x1FF;
+    private final static long JACK_OF_COLOR = 1L << Rank.JACK.ordinal();
+
+    /**
+     * @param ranks a set of ranks of trump cards, as a 9-bit mask
+     * @return the rank of the best of these trump cards, -1 if the set is empty
+     */
+    private static int bestTrumpRank(int ranks) {
+        int best = -1;
+        for (int rank = 0; rank < Rank.COUNT; ++rank) {
+            if ((ranks & (1 << rank)) != 0 && (best == -1
+                    || Rank.ALL.get(rank).trumpOrdinal() > Rank.ALL.get(best).trumpOrdinal()))
+                best = rank;
+        }
+        return best;
+    }
+
+    /**
+     * @return the array that gives, for every set of ranks of trump cards played
+     *         (as a 9-bit mask), the ranks of the trump cards better than all of them
+     *         (all the ranks if the set is empty)
+     */
+    private final static short[] generateTrumpRanksAboveBestArray() {
+        short[] tmp = new short[1 << Rank.COUNT];
+        for (int ranks = 0; ranks < tmp.length; ++ranks) {
+            int best = bestTrumpRank(ranks);
+            for (int rank = 0; rank < Rank.COUNT; ++rank) {
+                if (best == -1 || Rank.ALL.get(rank).trumpOrdinal() > Rank.ALL.get(best).trumpOrdinal())
+                    tmp[ranks] |= 1 << rank;
+            }
+        }
+        return tmp;
+    }
+
+    /**
+     * @return the array that gives, for every set of ranks of trump cards played
+     *         (as a 9-bit mask), the ranks whose index is smaller than the one of
+     *         the best of them (none if the set is empty)
+     */
+    private final static short[] generateRanksBelowBestArray() {
+        short[] tmp = new short[1 << Rank.COUNT];
+        for (int ranks = 1; ranks < tmp.length; ++ranks)
+            tmp[ranks] = (short) ((1 << bestTrumpRank(ranks)) - 1);
+        return tmp;
+    }
+
+    private final static short[] TRUMP_RANKS_ABOVE_BEST = generateTrumpRanksAboveBestArray();
+    private final static short[] RANKS_BELOW_BEST = generateRanksBelowBestArray();
+
+    private final static int CARD_VALUES = 1 << CARD_SIZE;
+    private final static int TRUMP_STRENGTH = 2 * Rank.COUNT; //above every card of the base color
+    private final static int BASE_STRENGTH = Rank.COUNT; //above every card of another color
+
+    /**
+     * @return the array that gives, at index ((trump * 4 + baseColor) << 6) | pkCard,
+     *         the strength of pkCard in a trick of that trump and base color: a card
+     *         beats the best card played before it if and only if it is stronger
+     *         (the cards of the other colors and INVALID are all worth 0)
+     */
+    private final static byte[] generateStrengthArray() {
+        byte[] tmp = new byte[Color.COUNT * Color.COUNT * CARD_VALUES];
+        for (int trump = 0; trump < Color.COUNT; ++trump) {
+            for (int base = 0; base < Color.COUNT; ++base) {
+                for (int rank = 0; rank < Rank.COUNT; ++rank) {
+                    for (int color = 0; color < Color.COUNT; ++color) {
+                        int strength = color == trump ? TRUMP_STRENGTH + Rank.ALL.get(rank).trumpOrdinal()
+                                : color == base ? BASE_STRENGTH + rank : 0;
+                        tmp[(trump * Color.COUNT + base) * CARD_VALUES
+                                | PackedCard.pack(Color.ALL.get(color), Rank.ALL.get(rank))] = (byte) strength;
+                    }
+                }
+            }
+        }
+        return tmp;
+    }
+
+    private final static byte[] STRENGTH = generateStrengthArray();
+
     /**
      * @param pkTrick a packed trick
      * @return true if the packed trick is valid, false else
      */
     public static boolean isValid(int pkTrick) {
         boolean assertion =
-                (Bits32.extract(pkTrick, TRICK_POS, TRICK_SIZE) < Jass.TRICKS_PER_TURN);
+                (Bits32.extractUnchecked(pkTrick, TRICK_POS, TRICK_SIZE) < Jass.TRICKS_PER_TURN);
 
-        int D = Bits32.extract(pkTrick, CARD_0_INDEX, CARD_SIZE);
-        int C = Bits32.extract(pkTrick, CARD_1_INDEX, CARD_SIZE);
-        int B = Bits32.extract(pkTrick, CARD_2_INDEX, CARD_SIZE);
-        int A = Bits32.extract(pkTrick, CARD_3_INDEX, CARD_SIZE);
+        int D = Bits32.extractUnchecked(pkTrick, CARD_0_INDEX, CARD_SIZE);
+        int C = Bits32.extractUnchecked(pkTrick, CARD_1_INDEX, CARD_SIZE);
+        int B = Bits32.extractUnchecked(pkTrick, CARD_2_INDEX, CARD_SIZE);
+        int A = Bits32.extractUnchecked(pkTrick, CARD_3_INDEX, CARD_SIZE);
 
         assertion = assertion
                 && (PackedCard.isValid(A) || A == PackedCard.INVALID)
@@ -83,7 +160,7 @@ public final class PackedTrick {
      */
     public static int nextEmpty(int PkTrick) {
 
-        if (extract(PkTrick, TRICK_POS,
+        if (extractUnchecked(PkTrick, TRICK_POS,
                 TRICK_SIZE) == MAX_TRICKS_NUMBER) {
             return INVALID;
         }
@@ -92,9 +169,9 @@ public final class PackedTrick {
 
         int winner = PlayerId.ALL.indexOf(winningPlayer(PkTrick));
 
-        int index = (extract(PkTrick, TRICK_POS, TRICK_SIZE)+1);
+        int index = (extractUnchecked(PkTrick, TRICK_POS, TRICK_SIZE)+1);
 
-        int trump = extract(PkTrick, TRUMP_POS, TRUMP_SIZE);
+        int trump = extractUnchecked(PkTrick, TRUMP_POS, TRUMP_SIZE);
 
         return defaultValues | index << (TRICK_POS)
                 | winner << (FIRST_PLAYER_POS)
@@ -107,7 +184,7 @@ public final class PackedTrick {
      * @return true if the packed trick is the ninth in the turn
      */
     public static boolean isLast(int pkTrick) {
-        return extract(pkTrick, TRICK_POS, TRICK_SIZE) == MAX_TRICKS_NUMBER;
+        return extractUnchecked(pkTrick, TRICK_POS, TRICK_SIZE) == MAX_TRICKS_NUMBER;
     }
 
     /**
@@ -123,10 +200,10 @@ public final class PackedTrick {
      * @return if four cards were played
      */
     public static boolean isFull(int pkTrick) {
-        return ((extract(pkTrick, CARD_0_INDEX, CARD_SIZE) != PackedCard.INVALID)
-             && (extract(pkTrick, CARD_1_INDEX, CARD_SIZE) != PackedCard.INVALID)
-             && (extract(pkTrick, CARD_2_INDEX, CARD_SIZE) != PackedCard.INVALID)
-             && (extract(pkTrick, CARD_3_INDEX, CARD_SIZE) != PackedCard.INVALID));
+        return ((extractUnchecked(pkTrick, CARD_0_INDEX, CARD_SIZE) != PackedCard.INVALID)
+             && (extractUnchecked(pkTrick, CARD_1_INDEX, CARD_SIZE) != PackedCard.INVALID)
+             && (extractUnchecked(pkTrick, CARD_2_INDEX, CARD_SIZE) != PackedCard.INVALID)
+             && (extractUnchecked(pkTrick, CARD_3_INDEX, CARD_SIZE) != PackedCard.INVALID));
     }
 
     /**
@@ -135,7 +212,7 @@ public final class PackedTrick {
      */
     public static int size(int pkTrick) {
         for (int i = 0; i < Jass.NUMBER_OF_PLAYERS; ++i) {
-            if (extract(pkTrick, CARD_SIZE * i, CARD_SIZE) == PackedCard.INVALID)
+            if (extractUnchecked(pkTrick, CARD_SIZE * i, CARD_SIZE) == PackedCard.INVALID)
                 return i;
         }
         return 4;
@@ -146,7 +223,7 @@ public final class PackedTrick {
      * @return the trump color of that packed trick
      */
     public static Color trump(int pkTrick) {
-        return Color.ALL.get(extract(pkTrick, TRUMP_POS, TRUMP_SIZE));
+        return Color.ALL.get(extractUnchecked(pkTrick, TRUMP_POS, TRUMP_SIZE));
     }
 
     /**
@@ -155,7 +232,7 @@ public final class PackedTrick {
      * @return the index-th player to play in that trick
      */
     public static PlayerId player(int pkTrick, int index) {
-        return PlayerId.ALL.get((extract(pkTrick, FIRST_PLAYER_POS,
+        return PlayerId.ALL.get((extractUnchecked(pkTrick, FIRST_PLAYER_POS,
                 FIRST_PLAYER_SIZE) + index) % 4);
     }
 
@@ -164,7 +241,7 @@ public final class PackedTrick {
      * @return the index of that trick (0-8)
      */
     public static int index(int pkTrick) {
-        return extract(pkTrick, TRICK_POS, TRICK_SIZE);
+        return extractUnchecked(pkTrick, TRICK_POS, TRICK_SIZE);
     }
 
     /**
@@ -173,7 +250,7 @@ public final class PackedTrick {
      * @return the packed card that is placed at position index in the packed trick
      */
     public static int card(int pkTrick, int index) {
-        return extract(pkTrick, CARD_SIZE * index, CARD_SIZE);
+        return extractUnchecked(pkTrick, CARD_SIZE * index, CARD_SIZE);
     }
 
     /**
@@ -183,7 +260,7 @@ public final class PackedTrick {
      */
     public static int withAddedCard(int pkTrick, int pkCard) {
         return pkTrick & (pkCard << (CARD_SIZE * (size(pkTrick))) |
-                ~Bits32.mask(size(pkTrick)* CARD_SIZE, CARD_SIZE));
+                ~Bits32.maskUnchecked(size(pkTrick)* CARD_SIZE, CARD_SIZE));
     }
 
     /**
@@ -191,7 +268,7 @@ public final class PackedTrick {
      * @return the base color of that trick
      */
     public static Color baseColor(int pkTrick) {
-        return PackedCard.color(extract(pkTrick, CARD_0_INDEX, CARD_SIZE));
+        return PackedCard.color(extractUnchecked(pkTrick, CARD_0_INDEX, CARD_SIZE));
     }
 
 
@@ -203,78 +280,36 @@ public final class PackedTrick {
      * @return the subset of pkHand that contains the playable cards for the player
      */
     public static long playableCards(int pkTrick, long pkHand) {
-
-        List<Integer> TrumpCards = new ArrayList<>(); //stores the trump cards already played
-
-        boolean wasThereAlreadyATrump = false;
-
-        for (int i = 0; i < size(pkTrick); ++i)
-            if (PackedCard.color(card(pkTrick, i)) == trump(pkTrick)) {
-                wasThereAlreadyATrump = true;
-                TrumpCards.add(card(pkTrick, i));
-            }
-
-        TrumpCards.sort(Comparator.comparingInt(i -> PackedCard.rank(i).trumpOrdinal()));
-            //sorts the list so that the best trump is at the last position
-
-        int maxTrumpCardPlayed = TrumpCards.size() == 0 ? 0 : TrumpCards.get(TrumpCards.size()-1);
-            //maxTrumpCardPlayed is 0 if there was no trump card played, or is the best trump card if there was
-
-        long AllBaseColorCards = subsetOfColor(ALL_CARDS, baseColor(pkTrick));
-        long AllTrumpColorCards = subsetOfColor(ALL_CARDS, trump(pkTrick));
-
-        /***************************************************/
-
-        if(size(pkTrick) == 0 || index(pkTrick) == 8)
+        if(size(pkTrick) == 0 || index(pkTrick) == MAX_TRICKS_NUMBER)
             return pkHand;
 
-        if(wasThereAlreadyATrump && (subsetOfColor(pkHand, trump(pkTrick)) == pkHand) && (pkHand < singleton(maxTrumpCardPlayed)))
-            return pkHand;
-        //cases where the player is stuck so he plays whatever he wants
-
-        if((subsetOfColor(pkHand, baseColor(pkTrick)) == 0L)) {
-
-            if(wasThereAlreadyATrump) {
-
-                if (PackedCardSet.difference(pkHand, subsetOfColor(~PackedCardSet.trumpAbove(maxTrumpCardPlayed), trump(pkTrick))) == 0)
-                    return pkHand; // plays what he wants when he has no base cards and no higher trump than the previous ones
+        int trump = extractUnchecked(pkTrick, TRUMP_POS, TRUMP_SIZE);
+        int trumpShift = trump * COLOR_LANE_SIZE;
+        int baseShift = (extractUnchecked(pkTrick, CARD_0_INDEX, CARD_SIZE) >>> CARD_COLOR_INDEX) * COLOR_LANE_SIZE;
 
-                return PackedCardSet.difference(pkHand, subsetOfColor(~PackedCardSet.trumpAbove(maxTrumpCardPlayed), trump(pkTrick)));
-            }
-
-            return pkHand; //plays what he wants when he has no cards of the base color and no trump was played before
+        int trumpRanks = 0; //ranks of the trump cards already played
+        for (int i = 0; i < size(pkTrick); ++i) {
+            int pkCard = card(pkTrick, i);
+            trumpRanks |= (pkCard >>> CARD_COLOR_INDEX == trump ? 1 : 0) << (pkCard & CARD_RANK_MASK);
         }
 
+        long trumpCards = ALL_RANKS << trumpShift;
+        long baseCards = ALL_RANKS << baseShift;
+        long trumpsAbove = (long) TRUMP_RANKS_ABOVE_BEST[trumpRanks] << trumpShift; //every trump if none was played
 
-        if(baseColor(pkTrick) == trump(pkTrick)) {
-
-            if(subsetOfColor(pkHand, trump(pkTrick)) ==
-                    singleton(PackedCard.pack(trump(pkTrick), Rank.JACK)))
-
-                return pkHand; //plays what he wants when he only has the jack of trump as a trump card
-
-            if((pkHand & AllBaseColorCards) == 0)
-
-                return pkHand; //has no cards that logically follow the previous ones
-
-            return pkHand & AllBaseColorCards;
+        if((pkHand & ~((long) RANKS_BELOW_BEST[trumpRanks] << trumpShift)) == 0)
+            return pkHand; //only trumps, all of them below the best one (by rank index): he plays what he wants
 
-        } else {
-
-            if(!wasThereAlreadyATrump) {
-
-                if(((AllBaseColorCards | AllTrumpColorCards) & pkHand) == 0)
-
-                    return pkHand;
-
-                return (AllBaseColorCards | AllTrumpColorCards) & pkHand;}
-
-            if (((AllBaseColorCards | PackedCardSet.trumpAbove(maxTrumpCardPlayed)) & pkHand) == 0)
+        long baseInHand = pkHand & baseCards;
+        if(baseInHand == 0) { //no card of the base color: anything but a trump below the best one, if he can
+            long playable = pkHand & ~(trumpCards & ~trumpsAbove);
+            return playable == 0 ? pkHand : playable;
+        }
 
-                return pkHand;
+        if(baseShift == trumpShift) //the jack of trump never has to be played
+            return (pkHand & trumpCards) == JACK_OF_COLOR << trumpShift ? pkHand : baseInHand;
 
-            return (AllBaseColorCards | PackedCardSet.trumpAbove(maxTrumpCardPlayed)) & pkHand;
-        }
+        return pkHand & (baseCards | trumpsAbove);
     }
 
 
@@ -284,11 +319,13 @@ public final class PackedTrick {
      * @return the number of points that trick is worth
      */
     public static int points(int pkTrick) {
-        int sumOfPoints = 0;
+        int trump = extractUnchecked(pkTrick, TRUMP_POS, TRUMP_SIZE);
 
-        for(int i = 0; i < size(pkTrick); ++i) {
-            sumOfPoints += PackedCard.points(trump(pkTrick), card(pkTrick, i));
-        }
+        //the cards not played yet are INVALID, which is worth 0 points
+        int sumOfPoints = PackedCard.points(trump, extractUnchecked(pkTrick, CARD_0_INDEX, CARD_SIZE))
+                + PackedCard.points(trump, extractUnchecked(pkTrick, CARD_1_INDEX, CARD_SIZE))
+                + PackedCard.points(trump, extractUnchecked(pkTrick, CARD_2_INDEX, CARD_SIZE))
+                + PackedCard.points(trump, extractUnchecked(pkTrick, CARD_3_INDEX, CARD_SIZE));
 
         if(isLast(pkTrick))
             sumOfPoints += Jass.LAST_TRICK_ADDITIONAL_POINTS;
@@ -301,13 +338,37 @@ public final class PackedTrick {
      * @return the player that has won the trick
      */
     public static PlayerId winningPlayer(int pkTrick) {
-        short relativeWinner = 0;
+        return player(pkTrick, winningPosition(pkTrick));
+    }
 
-        for(short i = 1; i < size(pkTrick); ++i)
-            if(PackedCard.isBetter(trump(pkTrick), card(pkTrick, i), card(pkTrick, relativeWinner)))
-                relativeWinner = i;
+    /**
+     * @param pkTrick a packed trick
+     * @return the position (0-3) of the card that wins the trick, 0 if it is empty
+     */
+    static int winningPosition(int pkTrick) {
+        int card0 = extractUnchecked(pkTrick, CARD_0_INDEX, CARD_SIZE);
+        int strengths = (extractUnchecked(pkTrick, TRUMP_POS, TRUMP_SIZE) * Color.COUNT + (card0 >>> CARD_COLOR_INDEX)) * CARD_VALUES;
+
+        //every strength comes with the position of its card, reversed so that the first of
+        //equal strengths wins (the cards not played yet are INVALID, whose strength is 0)
+        int best = STRENGTH[strengths | card0] << 2 | 3;
+        best = Math.max(best, STRENGTH[strengths | extractUnchecked(pkTrick, CARD_1_INDEX, CARD_SIZE)] << 2 | 2);
+        best = Math.max(best, STRENGTH[strengths | extractUnchecked(pkTrick, CARD_2_INDEX, CARD_SIZE)] << 2 | 1);
+        best = Math.max(best, STRENGTH[strengths | extractUnchecked(pkTrick, CARD_3_INDEX, CARD_SIZE)] << 2);
+
+        return 3 - (best & 3);
+    }
 
-        return player(pkTrick, relativeWinner);
+    /**
+     * @param pkTrick a packed trick, not empty
+     * @param position the position of a card of the trick
+     * @param winningPosition the position of the card that won the trick before it
+     * @return true if the card at position beats the one at winningPosition
+     */
+    static boolean beats(int pkTrick, int position, int winningPosition) {
+        int card0 = extractUnchecked(pkTrick, CARD_0_INDEX, CARD_SIZE);
+        int strengths = (extractUnchecked(pkTrick, TRUMP_POS, TRUMP_SIZE) * Color.COUNT + (card0 >>> CARD_COLOR_INDEX)) * CARD_VALUES;
+        return STRENGTH[strengths | card(pkTrick, position)] > STRENGTH[strengths | card(pkTrick, winningPosition)];
     }
 
     public static String toString(int pkTrick) {
@@ -0,0 +1,236 @@
+package ch.epfl.javass.jass;
+
+import static ch.epfl.javass.jass.PackedCardSet.ALL_CARDS;
+import static ch.epfl.javass.jass.PackedCardSet.singleton;
+import static ch.epfl.javass.jass.PackedCardSet.subsetOfColor;
+import static ch.epfl.javass.jass.PackedTrick.baseColor;
+import static ch.epfl.javass.jass.PackedTrick.card;
+import static ch.epfl.javass.jass.PackedTrick.index;
+import static ch.epfl.javass.jass.PackedTrick.size;
+import static ch.epfl.javass.jass.PackedTrick.trump;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import ch.epfl.javass.jass.Card.Color;
+import ch.epfl.javass.jass.Card.Rank;
+
+/**
+ * compares the table-driven playableCards, winningPlayer and points of PackedTrick with the
+ * implementations they replaced, frozen below, and throws an AssertionError on the first difference.
+ *
+ * winningPlayer and points are compared on every trick of up to four distinct cards, for every trump,
+ * first player, in the first and in the last trick of the turn. playableCards is compared on every
+ * trick of up to three distinct cards and every trump, in the first trick with the hands made of
+ * every subset of the trumps and of random other cards with and without the base color, and in the
+ * last trick with one random hand.
+ */
+class PackedTrickTest {
+
+    private static final int SEED = 2019;
+    private static final int TRUMP_SUBSETS = 1 << Rank.COUNT;
+    private static final int HAND_VARIANTS = 4; //with or without base cards, with or without other cards
+
+    private static SplittableRandom rng;
+    private static long comparisons;
+
+    public static void main(String[] arguments) {
+        rng = new SplittableRandom(SEED);
+        for(Color trump : Color.ALL)
+            for(PlayerId firstPlayer : PlayerId.ALL) {
+                int first = PackedTrick.firstEmpty(trump, firstPlayer);
+                int last = first;
+                for(int i = 1; i < Jass.TRICKS_PER_TURN; ++i)
+                    last = PackedTrick.nextEmpty(last);
+
+                compareAll(first, PackedCardSet.EMPTY, firstPlayer == PlayerId.PLAYER_1);
+                compareAll(last, PackedCardSet.EMPTY, firstPlayer == PlayerId.PLAYER_1);
+            }
+        System.out.println(comparisons + " comparisons, no difference");
+    }
+
+    /**
+     * compares the three methods on pkTrick and on every trick it can become
+     * @param pkTrick a packed trick
+     * @param pkUsed the packed set of its cards
+     * @param playable true if playableCards is compared too (it does not depend on the first player)
+     */
+    private static void compareAll(int pkTrick, long pkUsed, boolean playable) {
+        compareWinnerAndPoints(pkTrick);
+        if(PackedTrick.isFull(pkTrick))
+            return;
+        if(playable)
+            compareHands(pkTrick, pkUsed);
+
+        for(int i = 0; i < PackedCardSet.size(ALL_CARDS); ++i) {
+            int pkCard = PackedCardSet.get(ALL_CARDS, i);
+            if(!PackedCardSet.contains(pkUsed, pkCard))
+                compareAll(PackedTrick.withAddedCard(pkTrick, pkCard), PackedCardSet.add(pkUsed, pkCard), playable);
+        }
+    }
+
+    private static void compareWinnerAndPoints(int pkTrick) {
+        check(PackedTrick.winningPlayer(pkTrick) == oldWinningPlayer(pkTrick), pkTrick, "winningPlayer");
+        check(PackedTrick.points(pkTrick) == oldPoints(pkTrick), pkTrick, "points");
+        comparisons += 2;
+    }
+
+    private static void compareHands(int pkTrick, long pkUsed) {
+        Color trump = trump(pkTrick);
+        long free = PackedCardSet.difference(ALL_CARDS, pkUsed);
+        if(PackedTrick.isLast(pkTrick)) {
+            comparePlayableCards(pkTrick, free & rng.nextLong());
+            return;
+        }
+
+        long trumpCards = subsetOfColor(free, trump);
+        long baseCards = PackedTrick.isEmpty(pkTrick) ? PackedCardSet.EMPTY : subsetOfColor(free, baseColor(pkTrick));
+        long otherCards = PackedCardSet.difference(free, trumpCards | baseCards);
+        for(int subset = 0; subset < TRUMP_SUBSETS; ++subset) {
+            long trumps = trumpCards & ((long) subset << (trump.ordinal() * 16));
+            for(int variant = 0; variant < HAND_VARIANTS; ++variant) {
+                long hand = trumps;
+                if((variant & 1) != 0)
+                    hand |= PackedTrick.isEmpty(pkTrick) || baseColor(pkTrick) == trump
+                    ? PackedCardSet.EMPTY : atLeastOne(baseCards);
+                if((variant & 2) != 0)
+                    hand |= atLeastOne(otherCards);
+                comparePlayableCards(pkTrick, hand);
+            }
+        }
+    }
+
+    /**
+     * @return a random non-empty subset of pkCardSet, empty if it is
+     */
+    private static long atLeastOne(long pkCardSet) {
+        if(pkCardSet == PackedCardSet.EMPTY)
+            return pkCardSet;
+        long subset = pkCardSet & rng.nextLong();
+        return subset != PackedCardSet.EMPTY ? subset
+                : singleton(PackedCardSet.get(pkCardSet, rng.nextInt(PackedCardSet.size(pkCardSet))));
+    }
+
+    private static void comparePlayableCards(int pkTrick, long pkHand) {
+        check(PackedTrick.playableCards(pkTrick, pkHand) == oldPlayableCards(pkTrick, pkHand), pkTrick,
+                "playableCards with " + PackedCardSet.toString(pkHand));
+        ++comparisons;
+    }
+
+    private static void check(boolean same, int pkTrick, String what) {
+        if(!same)
+            throw new AssertionError(what + " differs on " + PackedTrick.toString(pkTrick)
+                    + " (trick " + index(pkTrick) + ", trump " + trump(pkTrick) + ")");
+    }
+
+    // the implementations of the baseline, frozen
+
+    private static int oldCardPoints(Color trump, int pack) {
+        int[] valueNotTrump = new int[]{0, 0, 0, 0, 10, 2, 3, 4, 11};
+        int[] valueTrump = new int[]{0, 0, 0, 14, 10, 20, 3, 4, 11};
+
+        return PackedCard.color(pack) == trump
+                ? valueTrump[PackedCard.rank(pack).ordinal()]
+                : valueNotTrump[PackedCard.rank(pack).ordinal()];
+    }
+
+    private static int oldPoints(int pkTrick) {
+        int sumOfPoints = 0;
+
+        for(int i = 0; i < size(pkTrick); ++i) {
+            sumOfPoints += oldCardPoints(trump(pkTrick), card(pkTrick, i));
+        }
+
+        if(PackedTrick.isLast(pkTrick))
+            sumOfPoints += Jass.LAST_TRICK_ADDITIONAL_POINTS;
+
+        return sumOfPoints;
+    }
+
+    private static PlayerId oldWinningPlayer(int pkTrick) {
+        short relativeWinner = 0;
+
+        for(short i = 1; i < size(pkTrick); ++i)
+            if(PackedCard.isBetter(trump(pkTrick), card(pkTrick, i), card(pkTrick, relativeWinner)))
+                relativeWinner = i;
+
+        return PackedTrick.player(pkTrick, relativeWinner);
+    }
+
+    private static long oldPlayableCards(int pkTrick, long pkHand) {
+
+        List<Integer> TrumpCards = new ArrayList<>(); //stores the trump cards already played
+
+        boolean wasThereAlreadyATrump = false;
+
+        for (int i = 0; i < size(pkTrick); ++i)
+            if (PackedCard.color(card(pkTrick, i)) == trump(pkTrick)) {
+                wasThereAlreadyATrump = true;
+                TrumpCards.add(card(pkTrick, i));
+            }
+
+        TrumpCards.sort(Comparator.comparingInt(i -> PackedCard.rank(i).trumpOrdinal()));
+            //sorts the list so that the best trump is at the last position
+
+        int maxTrumpCardPlayed = TrumpCards.size() == 0 ? 0 : TrumpCards.get(TrumpCards.size()-1);
+            //maxTrumpCardPlayed is 0 if there was no trump card played, or is the best trump card if there was
+
+        long AllBaseColorCards = subsetOfColor(ALL_CARDS, baseColor(pkTrick));
+        long AllTrumpColorCards = subsetOfColor(ALL_CARDS, trump(pkTrick));
+
+        /***************************************************/
+
+        if(size(pkTrick) == 0 || index(pkTrick) == 8)
+            return pkHand;
+
+        if(wasThereAlreadyATrump && (subsetOfColor(pkHand, trump(pkTrick)) == pkHand) && (pkHand < singleton(maxTrumpCardPlayed)))
+            return pkHand;
+        //cases where the player is stuck so he plays whatever he wants
+
+        if((subsetOfColor(pkHand, baseColor(pkTrick)) == 0L)) {
+
+            if(wasThereAlreadyATrump) {
+
+                if (PackedCardSet.difference(pkHand, subsetOfColor(~PackedCardSet.trumpAbove(maxTrumpCardPlayed), trump(pkTrick))) == 0)
+                    return pkHand; // plays what he wants when he has no base cards and no higher trump than the previous ones
+
+                return PackedCardSet.difference(pkHand, subsetOfColor(~PackedCardSet.trumpAbove(maxTrumpCardPlayed), trump(pkTrick)));
+            }
+
+            return pkHand; //plays what he wants when he has no cards of the base color and no trump was played before
+        }
+
+
+        if(baseColor(pkTrick) == trump(pkTrick)) {
+
+            if(subsetOfColor(pkHand, trump(pkTrick)) ==
+                    singleton(PackedCard.pack(trump(pkTrick), Rank.JACK)))
+
+                return pkHand; //plays what he wants when he only has the jack of trump as a trump card
+
+            if((pkHand & AllBaseColorCards) == 0)
+
+                return pkHand; //has no cards that logically follow the previous ones
+
+            return pkHand & AllBaseColorCards;
+
+        } else {
+
+            if(!wasThereAlreadyATrump) {
+
+                if(((AllBaseColorCards | AllTrumpColorCards) & pkHand) == 0)
+
+                    return pkHand;
+
+                return (AllBaseColorCards | AllTrumpColorCards) & pkHand;}
+
+            if (((AllBaseColorCards | PackedCardSet.trumpAbove(maxTrumpCardPlayed)) & pkHand) == 0)
+
+                return pkHand;
+
+            return (AllBaseColorCards | PackedCardSet.trumpAbove(maxTrumpCardPlayed)) & pkHand;
+        }
+    }
+}
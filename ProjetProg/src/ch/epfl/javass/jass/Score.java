@@ -13,7 +13,7 @@ public final class Score {
         this.pkdScore = pkdScore;
     }
 
-    private long pkdScore;
+    private final long pkdScore;
 
     public static final Score INITIAL = new Score(0);
 
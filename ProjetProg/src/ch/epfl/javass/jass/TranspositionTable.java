@@ -0,0 +1,164 @@
+package ch.epfl.javass.jass;
+
+import static ch.epfl.javass.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * fixed-size table of the visits of the positions of a turn, indexed by their Zobrist key (see
+ * TurnState.zobristKey), shared by the nodes of the MCTS trees that reach the same position
+ * through different orders of the cards.
+ *
+ * Every entry is three longs of an atomic array: the key, the number of visits and the sums
+ * of the turn points of both teams at the end of those visits (one in each half of the long,
+ * so that a single addition updates both). No lock is ever taken: a thread replacing an entry
+ * while another one adds to it may blur the statistics of one position, which the search
+ * tolerates as it tolerates any unlucky rollout.
+ */
+final class TranspositionTable {
+
+    static final int NONE = -1;
+
+    private static final int ENTRY_LONGS = 3;
+    private static final int KEY = 0, VISITS = 1, SUMS = 2;
+    private static final int BUCKET_SIZE = 2; //a key can be stored in either entry of its bucket
+    private static final long MAX_VISITS = (1L << Integer.SIZE) >>> 9; //turn points fit in 9 bits, so the sums stay in their half
+
+    private final AtomicLongArray entries;
+    private final int bucketMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder replacements = new LongAdder();
+
+    /**
+     * @param log2Capacity the base 2 logarithm of the number of entries
+     * @throws IllegalArgumentException if log2Capacity is not between 1 and 26
+     */
+    TranspositionTable(int log2Capacity) {
+        checkArgument(1 <= log2Capacity && log2Capacity <= 26);
+        entries = new AtomicLongArray(ENTRY_LONGS << log2Capacity);
+        bucketMask = (1 << log2Capacity) / BUCKET_SIZE - 1;
+    }
+
+    /**
+     * @return the index of the first entry of key's bucket
+     */
+    private int bucket(long key) {
+        return ((int)(key ^ (key >>> 32)) & bucketMask) * BUCKET_SIZE;
+    }
+
+    /**
+     * @param key the Zobrist key of a position
+     * @return the entry of that position, or NONE if the table has none, counted as a hit or a miss
+     */
+    int find(long key) {
+        int entry = entry(key);
+        if(entry == NONE)
+            misses.increment();
+        else
+            hits.increment();
+        return entry;
+    }
+
+    /**
+     * same as find, without counting a hit or a miss (for a position that was just looked up)
+     * @param key the Zobrist key of a position
+     * @return the entry of that position, or NONE if the table has none
+     */
+    int entry(long key) {
+        int first = bucket(key);
+        for(int entry = first; entry < first + BUCKET_SIZE; ++entry) {
+            if(entries.get(entry * ENTRY_LONGS + KEY) == key && visits(entry) != 0)
+                return entry;
+        }
+        return NONE;
+    }
+
+    /**
+     * counts a visit of a position, replacing the least visited entry of its bucket if the
+     * position is not in the table yet
+     * @param key the Zobrist key of the position
+     * @param turnPoints1 the turn points of TEAM_1 at the end of the visit
+     * @param turnPoints2 the turn points of TEAM_2 at the end of the visit
+     */
+    void add(long key, int turnPoints1, int turnPoints2) {
+        int first = bucket(key);
+        int target = NONE;
+        for(int entry = first; entry < first + BUCKET_SIZE && target == NONE; ++entry) {
+            if(entries.get(entry * ENTRY_LONGS + KEY) == key)
+                target = entry;
+        }
+
+        if(target == NONE) { //the visits already counted are worth keeping, the least visited entry goes
+            target = first;
+            for(int entry = first + 1; entry < first + BUCKET_SIZE; ++entry) {
+                if(visits(entry) < visits(target))
+                    target = entry;
+            }
+            if(visits(target) != 0)
+                replacements.increment();
+            entries.set(target * ENTRY_LONGS + KEY, key);
+            entries.set(target * ENTRY_LONGS + VISITS, 0);
+            entries.set(target * ENTRY_LONGS + SUMS, 0);
+        }
+
+        if(visits(target) >= MAX_VISITS) //such a position is known well enough
+            return;
+        entries.addAndGet(target * ENTRY_LONGS + SUMS, turnPoints1 | (long)turnPoints2 << Integer.SIZE);
+        entries.incrementAndGet(target * ENTRY_LONGS + VISITS);
+    }
+
+    /**
+     * forgets every position, which must not be done while a search uses the table
+     */
+    void clear() {
+        for(int i = 0; i < entries.length(); ++i)
+            entries.set(i, 0);
+    }
+
+    /**
+     * @param entry an entry returned by find
+     * @return the number of visits counted in it
+     */
+    long visits(int entry) {
+        return entries.get(entry * ENTRY_LONGS + VISITS);
+    }
+
+    /**
+     * @param entry an entry returned by find
+     * @param team one of the teams
+     * @return the sum of the turn points team had at the end of the visits counted in the entry
+     */
+    long turnPointsSum(int entry, TeamId team) {
+        long sums = entries.get(entry * ENTRY_LONGS + SUMS);
+        return team == TeamId.TEAM_1 ? sums & 0xFFFF_FFFFL : sums >>> Integer.SIZE;
+    }
+
+    /**
+     * @return the number of calls to find that found their position
+     */
+    long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of calls to find that did not find their position
+     */
+    long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of positions dropped to make room for another one
+     */
+    long replacements() {
+        return replacements.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TranspositionTable(hits=" + hits() + ", misses=" + misses() + ", replacements=" + replacements() + ")";
+    }
+}
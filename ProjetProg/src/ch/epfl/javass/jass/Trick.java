@@ -9,9 +9,30 @@ public final class Trick {
         this.pkTrick = pk;
     }
     
-    private int pkTrick;
+    private final int pkTrick;
+
+    // the values derived from the cards, 0 until first needed: DERIVED | base color << BASE_COLOR_POS
+    // | position of the winning card << WINNER_POS | points. withAddedCard derives them from the
+    // ones of the trick it extends, so a trick built card by card never recomputes them
+    private int derived;
+    private final static int DERIVED = 1 << 16;
+    private final static int BASE_COLOR_POS = 10;
+    private final static int WINNER_POS = 8;
+    private final static int POINTS_MASK = (1 << WINNER_POS) - 1;
     
     public final static Trick INVALID = new Trick(PackedTrick.INVALID);
+
+    // the empty tricks, created once and indexed by the byte that identifies them
+    // (index, first player and trump), INVALID included
+    private final static int HEADER_POS = 24;
+    private final static Trick[] EMPTY_TRICKS = new Trick[1 << (Integer.SIZE - HEADER_POS)];
+    static {
+        for (Color trump : Color.ALL)
+            for (PlayerId firstPlayer : PlayerId.ALL)
+                for (int i = 0, pk = PackedTrick.firstEmpty(trump, firstPlayer); i < Jass.TRICKS_PER_TURN; ++i, pk += 1 << HEADER_POS)
+                    EMPTY_TRICKS[pk >>> HEADER_POS] = new Trick(pk);
+        EMPTY_TRICKS[PackedTrick.INVALID >>> HEADER_POS] = INVALID;
+    }
     
     /**
      * @param trump the trump during that turn
@@ -19,7 +40,7 @@ public final class Trick {
      * @return an empty trick with the correct above assumptions
      */
     public static Trick firstEmpty(Color trump, PlayerId firstPlayer) {
-        return ofPacked(PackedTrick.firstEmpty(trump, firstPlayer));
+        return EMPTY_TRICKS[PackedTrick.firstEmpty(trump, firstPlayer) >>> HEADER_POS];
     }
 
     /**
@@ -29,6 +50,8 @@ public final class Trick {
      */
     public static Trick ofPacked(int pkValue) {
         return new Trick(pkValue);
+        //not interned: most tricks never leave the method that creates them,
+        //and the JIT removes those allocations only if nothing else can be returned
     }
     
     /**
@@ -43,7 +66,7 @@ public final class Trick {
      */
     public Trick nextEmpty() {
         if(!(size() == 4)) throw new IllegalStateException();
-        return ofPacked(PackedTrick.nextEmpty(pkTrick));
+        return EMPTY_TRICKS[PackedTrick.nextEmpty(pkTrick) >>> HEADER_POS];
     }
 
     /**
@@ -113,7 +136,31 @@ public final class Trick {
      */
     public Trick withAddedCard(Card c) {
         checkArgument(!isFull());
-        return ofPacked(PackedTrick.withAddedCard(pkTrick, c.packed()));
+        int position = size();
+        Trick next = ofPacked(PackedTrick.withAddedCard(pkTrick, c.packed()));
+        int d = derived();
+        int points = (d & POINTS_MASK) + c.points(trump());
+        if(position == 0)
+            next.derived = DERIVED | c.color().ordinal() << BASE_COLOR_POS | points;
+        else if(PackedTrick.beats(next.pkTrick, position, (d >>> WINNER_POS) & 0b11))
+            next.derived = (d & ~(0b11 << WINNER_POS | POINTS_MASK)) | position << WINNER_POS | points;
+        else
+            next.derived = (d & ~POINTS_MASK) | points;
+        return next;
+    }
+
+    /**
+     * @return the values derived from the cards of the trick, computed on the first call
+     */
+    private int derived() {
+        int d = derived;
+        if(d == 0) { //racy but harmless: every thread computes the same value
+            d = DERIVED | PackedTrick.winningPosition(pkTrick) << WINNER_POS | PackedTrick.points(pkTrick);
+            if(!PackedTrick.isEmpty(pkTrick))
+                d |= PackedTrick.baseColor(pkTrick).ordinal() << BASE_COLOR_POS;
+            derived = d;
+        }
+        return d;
     }
     
     /**
@@ -122,7 +169,7 @@ public final class Trick {
     public Color baseColor() {
         if(isEmpty())
             throw new IllegalStateException();
-        return PackedTrick.baseColor(pkTrick);
+        return Color.ALL.get((derived() >>> BASE_COLOR_POS) & 0b11);
     }
     
     /**
@@ -140,7 +187,7 @@ public final class Trick {
      * @return the points that trick is worth
      */
     public int points() {
-        return PackedTrick.points(pkTrick);
+        return derived() & POINTS_MASK;
     }
     
     /**
@@ -149,7 +196,7 @@ public final class Trick {
     public PlayerId winningPlayer() {
         if(isEmpty())
             throw new IllegalStateException();
-        return PackedTrick.winningPlayer(pkTrick);
+        return PackedTrick.player(pkTrick, (derived() >>> WINNER_POS) & 0b11);
     }
     
    @Override
@@ -5,15 +5,22 @@ import ch.epfl.javass.jass.Card.Color;
 
 public final class TurnState {
 
-    private TurnState(long score, long unplayed, int trick) {
+    private TurnState(long score, long unplayed, int trick, long zobristKey) {
         this.currentPkScore = score;
         this.unplayedPkCardSet = unplayed;
         this.currentPkTrick = trick;
+        this.zobristKey = zobristKey;
+    }
+
+    private TurnState(long score, long unplayed, int trick) {
+        this(score, unplayed, trick, Zobrist.key(score, unplayed, trick));
     }
     
     private long currentPkScore;
     private long unplayedPkCardSet;
     private int currentPkTrick;
+    private long zobristKey; //kept up to date by the with methods instead of being recomputed
+    private Trick trick; //null until trick is called, then followed card by card by the with methods
 
     /**
      * @param trump the trump color that was selected for this turnstate
@@ -57,6 +64,14 @@ public final class TurnState {
         return currentPkTrick;
     }
 
+    /**
+     * @return a 64-bit key of the score, unplayed cards and trick of the current turnstate: two turnstates
+     * with the same components have the same key, whatever order their cards were played in
+     */
+    public long zobristKey() {
+        return zobristKey;
+    }
+
     /**
      * @return the score of the current turnstate
      */
@@ -75,7 +90,9 @@ public final class TurnState {
      * @return the trick of the current turnstate
      */
     public Trick trick() {
-        return Trick.ofPacked(currentPkTrick);
+        if(trick == null)
+            trick = Trick.ofPacked(currentPkTrick);
+        return trick;
     }
 
     /**
@@ -100,7 +117,11 @@ public final class TurnState {
      */
     public TurnState withNewCardPlayed(Card card) {
         if(PackedTrick.isFull(currentPkTrick)) throw new IllegalStateException();
-        return new TurnState(currentPkScore, PackedCardSet.remove(unplayedPkCardSet, card.packed()), PackedTrick.withAddedCard(currentPkTrick, card.packed()));
+        TurnState next = new TurnState(currentPkScore, PackedCardSet.remove(unplayedPkCardSet, card.packed()), PackedTrick.withAddedCard(currentPkTrick, card.packed()),
+                Zobrist.withCardPlayed(zobristKey, currentPkTrick, card.packed()));
+        if(trick != null)
+            next.trick = trick.withAddedCard(card);
+        return next;
     }
 
     /**
@@ -108,7 +129,15 @@ public final class TurnState {
      */
     public TurnState withTrickCollected() {
         if(!PackedTrick.isFull(currentPkTrick)) throw new IllegalStateException();
-        return new TurnState(PackedScore.withAdditionalTrick(currentPkScore, PackedTrick.winningPlayer(currentPkTrick).team(), PackedTrick.points(currentPkTrick)), unplayedPkCardSet, PackedTrick.nextEmpty(currentPkTrick));
+        long newScore = trick != null
+                ? PackedScore.withAdditionalTrick(currentPkScore, trick.winningPlayer().team(), trick.points())
+                : PackedScore.withAdditionalTrick(currentPkScore, PackedTrick.winningPlayer(currentPkTrick).team(), PackedTrick.points(currentPkTrick));
+        int nextTrick = PackedTrick.nextEmpty(currentPkTrick);
+        TurnState next = new TurnState(newScore, unplayedPkCardSet, nextTrick,
+                Zobrist.withTrickCollected(zobristKey, currentPkScore, currentPkTrick, newScore, nextTrick));
+        if(trick != null)
+            next.trick = trick.nextEmpty();
+        return next;
     }
 
     /**
@@ -0,0 +1,93 @@
+package ch.epfl.javass.jass;
+
+import java.util.SplittableRandom;
+
+/**
+ * 64-bit keys of the states of a turn (score, unplayed cards and trick), computed by xor-ing one
+ * random number per component so that playing a card or collecting a trick only updates a few bits
+ * of the key of the previous state. Two states with the same components have the same key,
+ * whatever order the cards were played in.
+ */
+final class Zobrist {
+    private Zobrist() {}
+
+    private static final long SEED = 0x4A617373L; //fixed so that the keys are the same in every run
+
+    private static final long[] UNPLAYED_CARDS = new long[Long.SIZE]; //by packed card, present when unplayed
+    private static final long[][] TRICK_CARDS = new long[PlayerId.COUNT][Long.SIZE]; //by position, then packed card
+    private static final long[] TRICK_HEADERS = new long[1 << 8]; //by index, first player and trump (bits 24 to 31)
+
+    static {
+        SplittableRandom rng = new SplittableRandom(SEED);
+        fill(UNPLAYED_CARDS, rng);
+        for(long[] position : TRICK_CARDS)
+            fill(position, rng);
+        fill(TRICK_HEADERS, rng);
+    }
+
+    private static void fill(long[] keys, SplittableRandom rng) {
+        for(int i = 0; i < keys.length; ++i)
+            keys[i] = rng.nextLong();
+    }
+
+    /**
+     * @param pkScore a packed score
+     * @return the part of the key that depends on the score, a mix of all of its bits since
+     *         collecting a trick changes several of them at once
+     */
+    private static long scoreKey(long pkScore) {
+        long k = pkScore;
+        k = (k ^ (k >>> 33)) * 0xFF51AFD7ED558CCDL;
+        k = (k ^ (k >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return k ^ (k >>> 33);
+    }
+
+    /**
+     * @param pkTrick a packed trick, or PackedTrick.INVALID
+     * @return the part of the key that depends on the trick
+     */
+    private static long trickKey(int pkTrick) {
+        long key = TRICK_HEADERS[pkTrick >>> 24];
+        if(pkTrick != PackedTrick.INVALID) {
+            for(int i = 0; i < PackedTrick.size(pkTrick); ++i)
+                key ^= TRICK_CARDS[i][PackedTrick.card(pkTrick, i)];
+        }
+        return key;
+    }
+
+    /**
+     * @param pkScore the packed score of the state
+     * @param pkUnplayedCards the packed set of its unplayed cards
+     * @param pkTrick its packed trick, or PackedTrick.INVALID at the end of the turn
+     * @return the key of the state, computed from scratch
+     */
+    static long key(long pkScore, long pkUnplayedCards, int pkTrick) {
+        long key = scoreKey(pkScore) ^ trickKey(pkTrick);
+        for(long cards = pkUnplayedCards; cards != 0; cards &= cards - 1)
+            key ^= UNPLAYED_CARDS[Long.numberOfTrailingZeros(cards)];
+        return key;
+    }
+
+    /**
+     * @param key the key of a state
+     * @param pkTrick the packed trick of that state, not full
+     * @param pkCard the packed card played next
+     * @return the key of the state once pkCard is played
+     */
+    static long withCardPlayed(long key, int pkTrick, int pkCard) {
+        //a packed card is also its index in a packed card set
+        return key ^ UNPLAYED_CARDS[pkCard] ^ TRICK_CARDS[PackedTrick.size(pkTrick)][pkCard];
+    }
+
+    /**
+     * @param key the key of a state whose trick is full
+     * @param pkScore the packed score of that state
+     * @param pkFullTrick its full packed trick
+     * @param pkNewScore the packed score once the trick is collected
+     * @param pkNextTrick the packed trick that follows pkFullTrick, PackedTrick.INVALID if it was the last one
+     * @return the key of the state once the trick is collected
+     */
+    static long withTrickCollected(long key, long pkScore, int pkFullTrick, long pkNewScore, int pkNextTrick) {
+        return key ^ scoreKey(pkScore) ^ trickKey(pkFullTrick) ^ scoreKey(pkNewScore) ^ trickKey(pkNextTrick);
+    }
+}